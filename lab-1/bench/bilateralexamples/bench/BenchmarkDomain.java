@@ -0,0 +1,210 @@
+package bilateralexamples.bench;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.Deadline;
+import genius.core.DeadlineType;
+import genius.core.Domain;
+import genius.core.DomainImpl;
+import genius.core.parties.NegotiationInfo;
+import genius.core.timeline.DiscreteTimeline;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.UserModel;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * A generated domain for the benchmarks, with an own and an opponent profile.
+ * The domain and profiles are written as Genius XML to a temporary directory, in the shape of
+ * lab1_laptop, and loaded the way Genius loads them. Evaluations and weights are random, drawn
+ * from the seed. Parties get the own profile under preference uncertainty, with a ranking of
+ * random bids as user model.
+ */
+public class BenchmarkDomain
+{
+	/** Rounds of the deadline; the timeline of a benchmark stands still at a fraction of them */
+	public static final int ROUNDS = 1000;
+	/** Bids in the ranking of the user model, at most the size of the domain */
+	public static final int RANKED_BIDS = 100;
+
+	private final Domain domain;
+	private final AdditiveUtilitySpace ownSpace;
+	private final AdditiveUtilitySpace opponentSpace;
+
+	private BenchmarkDomain(Domain domain, AdditiveUtilitySpace ownSpace, AdditiveUtilitySpace opponentSpace)
+	{
+		this.domain = domain;
+		this.ownSpace = ownSpace;
+		this.opponentSpace = opponentSpace;
+	}
+
+	/**
+	 * @param size The number of outcomes, one of the sizes of {@link #getValuesPerIssue(String)}
+	 * @param seed The seed of the evaluations and weights
+	 */
+	public static BenchmarkDomain generate(String size, long seed) throws Exception
+	{
+		int[] valuesPerIssue = getValuesPerIssue(size);
+		Random random = new Random(seed);
+		File directory = Files.createTempDirectory("benchmark-domain").toFile();
+		File domainFile = write(new File(directory, "domain.xml"), toDomainXml(valuesPerIssue));
+		File ownFile = write(new File(directory, "own_utility.xml"), toProfileXml(valuesPerIssue, random));
+		File opponentFile = write(new File(directory, "opponent_utility.xml"), toProfileXml(valuesPerIssue, random));
+
+		Domain domain = new DomainImpl(domainFile);
+		BenchmarkDomain generated = new BenchmarkDomain(domain, new AdditiveUtilitySpace(domain, ownFile.getPath()),
+				new AdditiveUtilitySpace(domain, opponentFile.getPath()));
+		for (File file : new File[] { domainFile, ownFile, opponentFile, directory })
+			file.delete();
+		return generated;
+	}
+
+	/**
+	 * The shape of the domain of each size, from 36 outcomes, about the size of lab1_laptop, to over
+	 * four million. Domains above 100000 outcomes are searched lazily by TimeDependent_Offering.
+	 */
+	public static int[] getValuesPerIssue(String size)
+	{
+		switch (size)
+		{
+			case "36":
+				return new int[] { 3, 4, 3 };
+			case "10000":
+				return new int[] { 10, 10, 10, 10 };
+			case "100000":
+				return new int[] { 10, 10, 10, 10, 10 };
+			case "1000000":
+				return new int[] { 10, 10, 10, 10, 10, 10 };
+			case "4194304":
+				return new int[] { 4, 4, 4, 4, 4, 4, 4, 4, 4, 4, 4 };
+			default:
+				throw new IllegalArgumentException("No benchmark domain of size " + size);
+		}
+	}
+
+	public Domain getDomain()
+	{
+		return domain;
+	}
+
+	public AdditiveUtilitySpace getOwnSpace()
+	{
+		return ownSpace;
+	}
+
+	public AdditiveUtilitySpace getOpponentSpace()
+	{
+		return opponentSpace;
+	}
+
+	public List<Bid> getRandomBids(int number, long seed)
+	{
+		Random random = new Random(seed);
+		List<Bid> bids = new ArrayList<Bid>(number);
+		for (int i = 0; i < number; i++)
+			bids.add(domain.getRandomBid(random));
+		return bids;
+	}
+
+	/**
+	 * @return A ranking of distinct random bids by the own profile, from worst to best
+	 */
+	public UserModel getUserModel(long seed)
+	{
+		int size = (int) Math.min(RANKED_BIDS, domain.getNumberOfPossibleBids());
+		Random random = new Random(seed);
+		Set<Bid> distinct = new LinkedHashSet<Bid>();
+		while (distinct.size() < size)
+			distinct.add(domain.getRandomBid(random));
+
+		List<Bid> bidOrder = new ArrayList<Bid>(distinct);
+		bidOrder.sort(Comparator.comparingDouble(ownSpace::getUtility));
+		return new UserModel(new BidRanking(bidOrder, ownSpace.getUtility(bidOrder.get(0)),
+				ownSpace.getUtility(bidOrder.get(size - 1))));
+	}
+
+	/**
+	 * The information a party gets at init, with the user model of the own profile and a timeline
+	 * at the given time.
+	 */
+	public NegotiationInfo getInfo(String name, double time, long seed)
+	{
+		return new NegotiationInfo(ownSpace, getUserModel(seed), null, new Deadline(ROUNDS, DeadlineType.ROUND),
+				timelineAt(time), seed, new AgentID(name), null);
+	}
+
+	/**
+	 * @return A round based timeline that has gone through the given fraction of its rounds
+	 */
+	public static DiscreteTimeline timelineAt(double time)
+	{
+		DiscreteTimeline timeline = new DiscreteTimeline(ROUNDS);
+		for (int round = 0; round < time * ROUNDS; round++)
+			timeline.increment();
+		return timeline;
+	}
+
+	private static String toDomainXml(int[] valuesPerIssue)
+	{
+		StringBuilder xml = new StringBuilder();
+		xml.append("<negotiation_template>\n<utility_space number_of_issues=\"").append(valuesPerIssue.length).append("\">\n");
+		xml.append("<objective name=\"benchmark\" index=\"0\" description=\"\" etype=\"objective\" type=\"objective\">\n");
+		for (int issue = 0; issue < valuesPerIssue.length; issue++)
+		{
+			appendIssueStart(xml, issue);
+			for (int value = 0; value < valuesPerIssue[issue]; value++)
+				xml.append("<item index=\"").append(value + 1).append("\" value=\"v").append(value + 1).append("\">\n</item>\n");
+			xml.append("</issue>\n");
+		}
+		xml.append("</objective>\n</utility_space>\n</negotiation_template>\n");
+		return xml.toString();
+	}
+
+	private static String toProfileXml(int[] valuesPerIssue, Random random)
+	{
+		StringBuilder xml = new StringBuilder();
+		xml.append("<utility_space>\n");
+		xml.append("<objective name=\"benchmark\" index=\"0\" description=\"\" etype=\"objective\" type=\"objective\">\n");
+		double[] weights = new double[valuesPerIssue.length];
+		double totalWeight = 0;
+		for (int issue = 0; issue < valuesPerIssue.length; issue++)
+		{
+			appendIssueStart(xml, issue);
+			for (int value = 0; value < valuesPerIssue[issue]; value++)
+			{
+				xml.append("<item evaluation=\"").append(random.nextInt(100) + 1).append(".0\" index=\"").append(value + 1)
+						.append("\" value=\"v").append(value + 1).append("\">\n</item>\n");
+			}
+			xml.append("</issue>\n");
+			weights[issue] = random.nextDouble() + 0.01;
+			totalWeight += weights[issue];
+		}
+		for (int issue = 0; issue < valuesPerIssue.length; issue++)
+			xml.append("<weight index=\"").append(issue + 1).append("\" value=\"").append(weights[issue] / totalWeight).append("\">\n</weight>\n");
+		xml.append("</objective>\n<discount_factor value=\"1.0\">\n</discount_factor>\n<reservation value=\"0.0\">\n</reservation>\n");
+		xml.append("</utility_space>\n");
+		return xml.toString();
+	}
+
+	private static void appendIssueStart(StringBuilder xml, int issue)
+	{
+		xml.append("<issue vtype=\"discrete\" name=\"Issue").append(issue + 1).append("\" index=\"").append(issue + 1)
+				.append("\" etype=\"discrete\" type=\"discrete\">\n");
+	}
+
+	private static File write(File file, String xml) throws IOException
+	{
+		Files.write(file.toPath(), xml.getBytes(StandardCharsets.UTF_8));
+		return file;
+	}
+}
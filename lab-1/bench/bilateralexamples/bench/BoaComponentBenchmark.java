@@ -0,0 +1,107 @@
+package bilateralexamples.bench;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import bilateralexamples.boacomponents.BestBid;
+import bilateralexamples.boacomponents.FlatHardHeadedFrequencyModel;
+import bilateralexamples.boacomponents.HardHeadedFrequencyModel;
+import bilateralexamples.boacomponents.TimeDependent_Offering;
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OpponentModel;
+import genius.core.boaframework.OutcomeSpace;
+import genius.core.boaframework.SessionData;
+import genius.core.misc.Range;
+
+/**
+ * Throughput of the calls the BOA components get every turn, halfway through a session.
+ * The opponent has made two bids, so the frequency models have a difference to learn from, and
+ * BestBid chooses from the bids of the outcome space between 0.7 and 0.8.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class BoaComponentBenchmark
+{
+	private static final long SEED = 42;
+
+	@Param({ "36", "10000", "100000", "1000000", "4194304" })
+	public String domainSize;
+
+	@Param({ "HardHeadedFrequencyModel", "FlatHardHeadedFrequencyModel" })
+	public String opponentModel;
+
+	private OpponentModel model;
+	private BestBid omStrategy;
+	private TimeDependent_Offering offeringStrategy;
+	private OutcomeSpace outcomeSpace;
+	private List<BidDetails> candidates;
+	private Bid opponentBid;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception
+	{
+		BenchmarkDomain domain = BenchmarkDomain.generate(domainSize, SEED);
+		NegotiationSession session = new NegotiationSession(new SessionData(), domain.getOwnSpace(),
+				BenchmarkDomain.timelineAt(0.5));
+		for (Bid bid : domain.getRandomBids(2, SEED))
+		{
+			session.getOpponentBidHistory().add(new BidDetails(bid, domain.getOwnSpace().getUtility(bid), 0.5));
+			opponentBid = bid;
+		}
+
+		model = opponentModel.equals("HardHeadedFrequencyModel") ? new HardHeadedFrequencyModel()
+				: new FlatHardHeadedFrequencyModel();
+		model.init(session, Collections.<String, Double> emptyMap());
+		omStrategy = new BestBid();
+		omStrategy.init(session, model, Collections.singletonMap("t", 1.1));
+		offeringStrategy = new TimeDependent_Offering();
+		offeringStrategy.init(session, model, omStrategy, Collections.singletonMap("e", 0.2));
+		outcomeSpace = session.getOutcomeSpace();
+		candidates = outcomeSpace.getBidsinRange(new Range(0.7, 0.8));
+	}
+
+	@Benchmark
+	public void updateModel()
+	{
+		model.updateModel(opponentBid, 0.5);
+	}
+
+	/**
+	 * With a batch evaluating model, repeated calls for the range are answered from the cache of BestBid.
+	 */
+	@Benchmark
+	public BidDetails getBid()
+	{
+		return omStrategy.getBid(outcomeSpace, new Range(0.7, 0.8));
+	}
+
+	/**
+	 * A turn of the opponent model strategy: the model changes, so every candidate is evaluated.
+	 */
+	@Benchmark
+	public BidDetails updateModelAndGetBid()
+	{
+		model.updateModel(opponentBid, 0.5);
+		return omStrategy.getBid(candidates);
+	}
+
+	@Benchmark
+	public BidDetails determineNextBid()
+	{
+		return offeringStrategy.determineNextBid();
+	}
+}
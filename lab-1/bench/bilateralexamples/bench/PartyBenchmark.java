@@ -0,0 +1,100 @@
+package bilateralexamples.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import bilateralexamples.BoaPartyExample;
+import bilateralexamples.CustomUtilitySpacePartyExample;
+import bilateralexamples.RandomBidderExample;
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.Offer;
+import genius.core.parties.AbstractNegotiationParty;
+import genius.core.utility.AbstractUtilitySpace;
+
+/**
+ * Throughput of the turn of each example party, halfway through a session.
+ * Parties are set up again for every iteration, since they remember every bid they receive and make.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class PartyBenchmark
+{
+	private static final long SEED = 42;
+	private static final int OPPONENT_BIDS = 1000;
+
+	@Param({ "36", "10000", "100000", "1000000", "4194304" })
+	public String domainSize;
+
+	@Param({ "BoaPartyExample", "RandomBidderExample", "CustomUtilitySpacePartyExample" })
+	public String party;
+
+	private final AgentID opponent = new AgentID("Opponent");
+	private final List<Class<? extends Action>> possibleActions = Arrays.<Class<? extends Action>> asList(Accept.class,
+			Offer.class);
+	private BenchmarkDomain domain;
+	private Offer[] opponentOffers;
+	private AbstractNegotiationParty agent;
+	private int nextOffer;
+
+	@Setup(Level.Trial)
+	public void setUpDomain() throws Exception
+	{
+		domain = BenchmarkDomain.generate(domainSize, SEED);
+		List<Bid> bids = domain.getRandomBids(OPPONENT_BIDS, SEED);
+		opponentOffers = new Offer[bids.size()];
+		for (int i = 0; i < opponentOffers.length; i++)
+			opponentOffers[i] = new Offer(opponent, bids.get(i));
+	}
+
+	@Setup(Level.Iteration)
+	public void setUpParty()
+	{
+		switch (party)
+		{
+			case "BoaPartyExample":
+				agent = new BoaPartyExample();
+				break;
+			case "RandomBidderExample":
+				agent = new RandomBidderExample();
+				break;
+			default:
+				agent = new CustomUtilitySpacePartyExample();
+		}
+		agent.init(domain.getInfo(party, 0.5, SEED));
+		nextOffer = 0;
+		receiveMessage();
+	}
+
+	@Benchmark
+	public void receiveMessage()
+	{
+		agent.receiveMessage(opponent, opponentOffers[nextOffer++ % opponentOffers.length]);
+	}
+
+	@Benchmark
+	public Action chooseAction()
+	{
+		return agent.chooseAction(possibleActions);
+	}
+
+	@Benchmark
+	public AbstractUtilitySpace estimateUtilitySpace()
+	{
+		return agent.estimateUtilitySpace();
+	}
+}
@@ -8,7 +8,7 @@ import java.util.Map;
 
 import bilateralexamples.boacomponents.AC_Next;
 import bilateralexamples.boacomponents.BestBid;
-import bilateralexamples.boacomponents.HardHeadedFrequencyModel;
+import bilateralexamples.boacomponents.FlatHardHeadedFrequencyModel;
 import bilateralexamples.boacomponents.TimeDependent_Offering;
 import genius.core.boaframework.AcceptanceStrategy;
 import genius.core.boaframework.BoaParty;
@@ -47,7 +47,7 @@ public class BoaPartyExample extends BoaParty
 		// The choice for each component is made here
 		AcceptanceStrategy 	ac  = new AC_Next();
 		OfferingStrategy 	os  = new TimeDependent_Offering();
-		OpponentModel 		om  = new HardHeadedFrequencyModel();
+		OpponentModel 		om  = new FlatHardHeadedFrequencyModel();
 		OMStrategy			oms = new BestBid();
 		
 		// All component parameters can be set below.
@@ -0,0 +1,284 @@
+package bilateralexamples;
+
+import java.util.Arrays;
+import java.util.List;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.ValueDiscrete;
+import genius.core.uncertainty.BidRanking;
+
+/**
+ * Finds the ranked bid that shares the most values with a bid, as a {@link BidRanking} scan with
+ * {@link Bid#countEqualValues(Bid)} would, but without visiting every ranked bid.
+ * Ranked bids are keyed by a fingerprint of their option ordinals, so the bids at Hamming distance
+ * 0, 1 and 2 are probed directly, as long as that takes few lookups. Otherwise the overlaps are
+ * counted from an inverted index holding, per option of every issue, the ranked bids with that option.
+ * Ties go to the lowest ranked bid, as in the scan.
+ */
+public class ClosestRankedBidIndex
+{
+	/** The most fingerprint lookups a query spends on probing before counting overlaps */
+	private static final int MAX_PROBES = 512;
+
+	private final IssueDiscrete[] issues;
+	private final long[] radix;
+	/** Whether every bid has a distinct fingerprint, false for domains of more than 2^63 outcomes */
+	private final boolean exactFingerprints;
+	/** The number of bids at Hamming distance 1 and 2 of any bid */
+	private final int noNeighbours;
+	private final int noSecondNeighbours;
+	private final int[][] rankedOrdinals;
+	/** The indices of the ranked bids with each option, indexed by slot and ordinal, ascending */
+	private final int[][][] postings;
+
+	// Open addressing table from fingerprint to ranking index
+	private final long[] keys;
+	private final int[] values;
+	private final int mask;
+
+	// Overlap counts of the fallback, reset after every query
+	private final int[] counts;
+	private final int[] touched;
+
+	public ClosestRankedBidIndex(BidRanking bidRanking)
+	{
+		List<Bid> bidOrder = bidRanking.getBidOrder();
+		Domain domain = bidRanking.getMaximalBid().getDomain();
+		List<Issue> domainIssues = domain.getIssues();
+		int noIssues = domainIssues.size();
+		issues = new IssueDiscrete[noIssues];
+		radix = new long[noIssues];
+		long multiplier = 1;
+		boolean exact = true;
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			issues[slot] = (IssueDiscrete) domainIssues.get(slot);
+			radix[slot] = multiplier;
+			int noValues = issues[slot].getNumberOfValues();
+			exact &= multiplier <= Long.MAX_VALUE / noValues;
+			multiplier *= noValues;
+		}
+		exactFingerprints = exact;
+
+		int neighbours = 0;
+		int secondNeighbours = 0;
+		for (int first = 0; first < noIssues; first++)
+		{
+			neighbours += issues[first].getNumberOfValues() - 1;
+			for (int second = first + 1; second < noIssues; second++)
+				secondNeighbours += (issues[first].getNumberOfValues() - 1) * (issues[second].getNumberOfValues() - 1);
+		}
+		noNeighbours = neighbours;
+		noSecondNeighbours = secondNeighbours;
+
+		int noBids = bidOrder.size();
+		rankedOrdinals = new int[noBids][];
+		int[][] postingSizes = new int[noIssues][];
+		for (int slot = 0; slot < noIssues; slot++)
+			postingSizes[slot] = new int[issues[slot].getNumberOfValues()];
+		for (int i = 0; i < noBids; i++)
+		{
+			rankedOrdinals[i] = toOrdinals(bidOrder.get(i));
+			for (int slot = 0; slot < noIssues; slot++)
+				postingSizes[slot][rankedOrdinals[i][slot]]++;
+		}
+
+		postings = new int[noIssues][][];
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			postings[slot] = new int[postingSizes[slot].length][];
+			for (int ordinal = 0; ordinal < postingSizes[slot].length; ordinal++)
+				postings[slot][ordinal] = new int[postingSizes[slot][ordinal]];
+			Arrays.fill(postingSizes[slot], 0);
+		}
+
+		int capacity = Integer.highestOneBit(Math.max(16, noBids * 2)) << 1;
+		keys = new long[capacity];
+		values = new int[capacity];
+		Arrays.fill(values, -1);
+		mask = capacity - 1;
+		for (int i = 0; i < noBids; i++)
+		{
+			for (int slot = 0; slot < noIssues; slot++)
+			{
+				int ordinal = rankedOrdinals[i][slot];
+				postings[slot][ordinal][postingSizes[slot][ordinal]++] = i;
+			}
+
+			int position = mix(fingerprint(rankedOrdinals[i])) & mask;
+			while (values[position] != -1)
+				position = (position + 1) & mask;
+			keys[position] = fingerprint(rankedOrdinals[i]);
+			values[position] = i;
+		}
+
+		counts = new int[noBids];
+		touched = new int[noBids];
+	}
+
+	/**
+	 * @param bid A bid
+	 * @return The index of the ranked bid sharing the most values with the bid, the lowest on ties,
+	 *         or -1 if no ranked bid shares a value
+	 */
+	public int indexOfClosest(Bid bid)
+	{
+		int[] ordinals = toOrdinals(bid);
+		long fingerprint = fingerprint(ordinals);
+		int noIssues = issues.length;
+
+		int closest = find(fingerprint, ordinals);
+		if (closest != -1)
+			return closest;
+
+		// Neighbours at distance 1 share noIssues - 1 values, which has to be at least one
+		if (noIssues < 2 || noNeighbours > MAX_PROBES)
+			return countOverlaps(ordinals);
+
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			for (int ordinal = 0; ordinal < issues[slot].getNumberOfValues(); ordinal++)
+			{
+				if (ordinal == ordinals[slot])
+					continue;
+				closest = lowest(closest, probe(fingerprint, ordinals, slot, ordinal));
+			}
+		}
+		if (closest != -1)
+			return closest;
+
+		if (noIssues < 3 || noNeighbours + noSecondNeighbours > MAX_PROBES)
+			return countOverlaps(ordinals);
+
+		for (int first = 0; first < noIssues; first++)
+		{
+			for (int firstOrdinal = 0; firstOrdinal < issues[first].getNumberOfValues(); firstOrdinal++)
+			{
+				if (firstOrdinal == ordinals[first])
+					continue;
+				int original = ordinals[first];
+				long shifted = fingerprint + radix[first] * (firstOrdinal - original);
+				ordinals[first] = firstOrdinal;
+				for (int second = first + 1; second < noIssues; second++)
+				{
+					for (int secondOrdinal = 0; secondOrdinal < issues[second].getNumberOfValues(); secondOrdinal++)
+					{
+						if (secondOrdinal == ordinals[second])
+							continue;
+						closest = lowest(closest, probe(shifted, ordinals, second, secondOrdinal));
+					}
+				}
+				ordinals[first] = original;
+			}
+		}
+		if (closest != -1)
+			return closest;
+
+		return countOverlaps(ordinals);
+	}
+
+	/**
+	 * @return A key that identifies the bid, if {@link #hasExactFingerprints()}
+	 */
+	public long fingerprint(Bid bid)
+	{
+		return fingerprint(toOrdinals(bid));
+	}
+
+	public boolean hasExactFingerprints()
+	{
+		return exactFingerprints;
+	}
+
+	public int size()
+	{
+		return rankedOrdinals.length;
+	}
+
+	/**
+	 * Count, for every ranked bid sharing a value, the values it shares, from the postings of the options of the bid.
+	 */
+	private int countOverlaps(int[] ordinals)
+	{
+		int noTouched = 0;
+		for (int slot = 0; slot < issues.length; slot++)
+		{
+			for (int index : postings[slot][ordinals[slot]])
+			{
+				if (counts[index]++ == 0)
+					touched[noTouched++] = index;
+			}
+		}
+
+		int closest = -1;
+		int closestCount = 0;
+		for (int t = 0; t < noTouched; t++)
+		{
+			int index = touched[t];
+			if (counts[index] > closestCount || (counts[index] == closestCount && index < closest))
+			{
+				closest = index;
+				closestCount = counts[index];
+			}
+			counts[index] = 0;
+		}
+		return closest;
+	}
+
+	/**
+	 * Look up the bid with the option of one issue changed.
+	 */
+	private int probe(long fingerprint, int[] ordinals, int slot, int ordinal)
+	{
+		int original = ordinals[slot];
+		ordinals[slot] = ordinal;
+		int index = find(fingerprint + radix[slot] * (ordinal - original), ordinals);
+		ordinals[slot] = original;
+		return index;
+	}
+
+	private int find(long fingerprint, int[] ordinals)
+	{
+		for (int position = mix(fingerprint) & mask; values[position] != -1; position = (position + 1) & mask)
+		{
+			if (keys[position] == fingerprint
+					&& (exactFingerprints || Arrays.equals(rankedOrdinals[values[position]], ordinals)))
+				return values[position];
+		}
+		return -1;
+	}
+
+	private int[] toOrdinals(Bid bid)
+	{
+		int[] ordinals = new int[issues.length];
+		for (int slot = 0; slot < issues.length; slot++)
+			ordinals[slot] = issues[slot].getValueIndex((ValueDiscrete) bid.getValue(issues[slot].getNumber()));
+		return ordinals;
+	}
+
+	private long fingerprint(int[] ordinals)
+	{
+		long fingerprint = 0;
+		for (int slot = 0; slot < ordinals.length; slot++)
+			fingerprint += radix[slot] * ordinals[slot];
+		return fingerprint;
+	}
+
+	private static int lowest(int first, int second)
+	{
+		if (first == -1)
+			return second;
+		if (second == -1)
+			return first;
+		return Math.min(first, second);
+	}
+
+	private static int mix(long key)
+	{
+		key *= 0x9E3779B97F4A7C15L;
+		return (int) (key ^ (key >>> 32));
+	}
+}
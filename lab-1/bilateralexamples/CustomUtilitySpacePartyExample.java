@@ -1,5 +1,8 @@
 package bilateralexamples;
 
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashSet;
 import java.util.List;
 
 import genius.core.Bid;
@@ -7,6 +10,9 @@ import genius.core.Domain;
 import genius.core.actions.Accept;
 import genius.core.actions.Action;
 import genius.core.actions.Offer;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.ValueDiscrete;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
 import genius.core.timeline.DiscreteTimeline;
@@ -32,6 +38,14 @@ public class CustomUtilitySpacePartyExample extends AbstractNegotiationParty
 {
 	/** This agent will make bids above the minimuTarget */
 	private double minimumTarget = 1;
+	/** The fraction of the estimated utility range conceded by the deadline */
+	private static final double CONCESSION = 0.5;
+	/** The number of estimates the custom utility space remembers is 2 to this power */
+	private static final int ESTIMATE_BITS = 12;
+	/** Rank lookups into the ranking of the user model */
+	private RankingIndex rankingIndex;
+	/** The ranked bids and their neighbours, sorted by estimated utility */
+	private OutcomeIndex offerIndex;
 	
 	@Override
 	public void init(NegotiationInfo info) 
@@ -44,6 +58,8 @@ public class CustomUtilitySpacePartyExample extends AbstractNegotiationParty
 			log("There is no preference uncertainty. Try this agent with a negotiation scenario that has preference uncertainty enabled.");
 			return;
 		}
+		rankingIndex = new RankingIndex(userModel.getBidRanking());
+		offerIndex = new OutcomeIndex(utilitySpace, getRankedNeighbourhoods());
 		
 		log("Lowest util: " + userModel.getBidRanking().getLowUtility() 
 	    + ". Highest util: " + userModel.getBidRanking().getHighUtility());
@@ -88,27 +104,43 @@ public class CustomUtilitySpacePartyExample extends AbstractNegotiationParty
 			if (t.getOwnRoundsLeft() < 3 && getUtility(receivedBid) >= utilitySpace.getReservationValue())
 				return new Accept(getPartyId(), receivedBid);
 			
-			List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
-
 			// If the rank of the received bid is known
-			if (bidOrder.contains(receivedBid)) {
-				double percentile = (bidOrder.size()
-						- bidOrder.indexOf(receivedBid))
-						/ (double) bidOrder.size();
+			if (rankingIndex.contains(receivedBid)) {
+				double percentile = rankingIndex.getPercentile(receivedBid);
 				if (percentile < 0.1)
 					return new Accept(getPartyId(), receivedBid);
 			}
 		}
 			
-		// Return a random, conceding offer above minimumTarget
-		Bid randomBid;
-		do
+		// Return a random offer above minimumTarget, which concedes over time
+		double highest = offerIndex.getUtility(offerIndex.size() - 1);
+		double lowest = offerIndex.getUtility(0);
+		minimumTarget = highest - CONCESSION * timeline.getTime() * (highest - lowest);
+		return new Offer(getPartyId(), offerIndex.getRandomBidAbove(minimumTarget, rand));
+	}
+
+	/**
+	 * The ranked bids, and the bids that differ from one of them in a single issue, best ranked first,
+	 * up to {@link OutcomeIndex#MAX_OUTCOMES}. These are the bids whose estimates are closest to a known rank.
+	 */
+	private List<Bid> getRankedNeighbourhoods()
+	{
+		List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
+		LinkedHashSet<Bid> outcomes = new LinkedHashSet<>(bidOrder);
+		for (int i = bidOrder.size() - 1; i >= 0; i--)
 		{
-			randomBid = generateRandomBid();
-			minimumTarget *= 0.999; 
+			Bid rankedBid = bidOrder.get(i);
+			for (Issue issue : getDomain().getIssues())
+			{
+				for (ValueDiscrete value : ((IssueDiscrete) issue).getValues())
+				{
+					if (outcomes.size() >= OutcomeIndex.MAX_OUTCOMES)
+						return new ArrayList<>(outcomes);
+					outcomes.add(rankedBid.putValue(issue.getNumber(), value));
+				}
+			}
 		}
-		while (getUtility(randomBid) < minimumTarget);
-		return new Offer(getPartyId(), randomBid);
+		return new ArrayList<>(outcomes);
 	}
 
 	/**
@@ -131,49 +163,61 @@ public class CustomUtilitySpacePartyExample extends AbstractNegotiationParty
 	 */
 	private class ClosestKnownBid extends CustomUtilitySpace
 	{
+		/** Similarity lookups into the ranking of the user model */
+		private ClosestRankedBidIndex closestIndex;
+		/** The ranking the index was built from */
+		private BidRanking indexedRanking;
+		/**
+		 * Estimates of recently queried bids by a hash of their fingerprint, NaN where there is none.
+		 * A bid replaces the estimate of the bid it collides with, so the memory stays bounded.
+		 */
+		private final long[] fingerprints = new long[1 << ESTIMATE_BITS];
+		private final double[] estimates = new double[1 << ESTIMATE_BITS];
 
 		public ClosestKnownBid(Domain dom) {
 			super(dom);
+			Arrays.fill(estimates, Double.NaN);
 		}
 
 		@Override
 		public double getUtility(Bid bid) 
 		{
-			Bid closestRankedBid = getClosestBidRanked(bid);
-			return estimateUtilityOfRankedBid(closestRankedBid);
+			BidRanking bidRanking = getUserModel().getBidRanking();
+			if (bidRanking != indexedRanking)
+			{
+				closestIndex = new ClosestRankedBidIndex(bidRanking);
+				indexedRanking = bidRanking;
+				Arrays.fill(estimates, Double.NaN);
+			}
+			if (!closestIndex.hasExactFingerprints())
+				return estimateUtilityOfRank(getClosestRankIndex(bid));
+
+			long fingerprint = closestIndex.fingerprint(bid);
+			int slot = (int) ((fingerprint * 0x9E3779B97F4A7C15L) >>> (64 - ESTIMATE_BITS));
+			if (Double.isNaN(estimates[slot]) || fingerprints[slot] != fingerprint)
+			{
+				fingerprints[slot] = fingerprint;
+				estimates[slot] = estimateUtilityOfRank(getClosestRankIndex(bid));
+			}
+			return estimates[slot];
 		}
 		
-		public double estimateUtilityOfRankedBid(Bid b)
+		public double estimateUtilityOfRank(int i)
 		{
 			BidRanking bidRanking = getUserModel().getBidRanking();
 			Double min = bidRanking.getLowUtility();
 			double max = bidRanking.getHighUtility();
 			
-			int i = bidRanking.indexOf(b);
-			
 			// index:0 has utility min, index n-1 has utility max
 			return min + i * (max - min) / (double) bidRanking.getSize();
 		}
 		
 		/**
-		 * Finds the bid in the bid ranking that is most similar to bid given in the argument bid
+		 * Finds the index in the bid ranking of the bid that is most similar to bid given in the argument bid
 		 */
-		public Bid getClosestBidRanked(Bid bid)
+		public int getClosestRankIndex(Bid bid)
 		{
-			List<Bid> bidOrder = getUserModel().getBidRanking().getBidOrder();
-			Bid closestBid = null;
-			double closestDistance = Double.MAX_VALUE;
-				
-			for (Bid b : bidOrder)
-			{
-				double d = 1 / (double) b.countEqualValues(bid);
-				if (d < closestDistance)
-				{
-					closestDistance = d;
-					closestBid = b;
-				}
-			}
-			return closestBid;
+			return closestIndex.indexOfClosest(bid);
 		}
 		
 	}
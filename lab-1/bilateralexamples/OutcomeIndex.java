@@ -0,0 +1,193 @@
+package bilateralexamples;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.utility.AbstractUtilitySpace;
+
+/**
+ * The bids of a domain sorted by our own utility, so that a bid above a target
+ * can be drawn directly instead of by rejection sampling.
+ * Domains with more than {@link #MAX_OUTCOMES} bids are represented by a random sample
+ * that always contains the maximum utility bid.
+ */
+public class OutcomeIndex
+{
+	public static final int MAX_OUTCOMES = 50000;
+
+	private final Bid[] bids;
+	private final double[] utilities;
+	private int cursor;
+
+	/**
+	 * Builds the index for a utility space over a discrete domain.
+	 * @param utilitySpace The utility space used to sort the bids
+	 * @param rand The random generator used when the domain has to be sampled
+	 */
+	public OutcomeIndex(AbstractUtilitySpace utilitySpace, Random rand)
+	{
+		this(utilitySpace, utilitySpace.getDomain().getNumberOfPossibleBids() <= MAX_OUTCOMES
+				? enumerateBids(utilitySpace.getDomain())
+				: sampleBids(utilitySpace, rand));
+	}
+
+	/**
+	 * Builds the index over a given selection of bids.
+	 * @param utilitySpace The utility space used to sort the bids
+	 * @param outcomes The bids to index, at least one
+	 */
+	public OutcomeIndex(AbstractUtilitySpace utilitySpace, List<Bid> outcomes)
+	{
+		List<IndexEntry> entries = new ArrayList<>(outcomes.size());
+		for (Bid bid : outcomes)
+			entries.add(new IndexEntry(bid, utilitySpace.getUtility(bid)));
+		entries.sort(Comparator.comparingDouble(entry -> entry.utility));
+
+		bids = new Bid[entries.size()];
+		utilities = new double[entries.size()];
+		for (int i = 0; i < entries.size(); i++)
+		{
+			bids[i] = entries.get(i).bid;
+			utilities[i] = entries.get(i).utility;
+		}
+		cursor = bids.length - 1;
+	}
+
+	/**
+	 * Draw a bid uniformly from all indexed bids with a utility of at least the target.
+	 * If the target is above every indexed bid, the best bid is returned.
+	 * @param target The minimum utility of the bid
+	 * @param rand The random generator to draw with
+	 * @return A bid above the target
+	 */
+	public Bid getRandomBidAbove(double target, Random rand)
+	{
+		int first = indexOfFirstAbove(target);
+		if (first == bids.length)
+			return bids[bids.length - 1];
+
+		return bids[first + rand.nextInt(bids.length - first)];
+	}
+
+	/**
+	 * Finds the lowest index with a utility of at least the target.
+	 * The threshold usually only falls during a negotiation, so the search gallops
+	 * down from the previous position instead of searching the whole index.
+	 * @param target The minimum utility
+	 * @return The index, or the number of indexed bids if no bid reaches the target
+	 */
+	public int indexOfFirstAbove(double target)
+	{
+		int low;
+		int high;
+		if (utilities[cursor] >= target)
+		{
+			// The answer is at or below the cursor
+			high = cursor;
+			int step = 1;
+			low = high - step;
+			while (low >= 0 && utilities[low] >= target)
+			{
+				high = low;
+				step <<= 1;
+				low = high - step;
+			}
+			low = Math.max(low + 1, 0);
+		}
+		else
+		{
+			low = cursor + 1;
+			high = bids.length;
+		}
+
+		// Binary search for the first index in [low, high] with a utility of at least the target
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (utilities[mid] >= target)
+				high = mid;
+			else
+				low = mid + 1;
+		}
+
+		cursor = Math.min(low, bids.length - 1);
+		return low;
+	}
+
+	public Bid getBid(int index)
+	{
+		return bids[index];
+	}
+
+	public double getUtility(int index)
+	{
+		return utilities[index];
+	}
+
+	public int size()
+	{
+		return bids.length;
+	}
+
+	private static List<Bid> enumerateBids(Domain domain)
+	{
+		List<Issue> issues = domain.getIssues();
+		int noIssues = issues.size();
+		IssueDiscrete[] discreteIssues = new IssueDiscrete[noIssues];
+		for (int i = 0; i < noIssues; i++)
+			discreteIssues[i] = (IssueDiscrete) issues.get(i);
+
+		List<Bid> outcomes = new ArrayList<>((int) domain.getNumberOfPossibleBids());
+		int[] ordinals = new int[noIssues];
+		while (true)
+		{
+			HashMap<Integer, Value> values = new HashMap<>();
+			for (int i = 0; i < noIssues; i++)
+				values.put(discreteIssues[i].getNumber(), discreteIssues[i].getValue(ordinals[i]));
+			outcomes.add(new Bid(domain, values));
+
+			// Advance the mixed-radix counter over the value ordinals
+			int i = 0;
+			while (i < noIssues && ++ordinals[i] == discreteIssues[i].getNumberOfValues())
+				ordinals[i++] = 0;
+			if (i == noIssues)
+				return outcomes;
+		}
+	}
+
+	private static List<Bid> sampleBids(AbstractUtilitySpace utilitySpace, Random rand)
+	{
+		List<Bid> outcomes = new ArrayList<>(MAX_OUTCOMES);
+		try
+		{
+			outcomes.add(utilitySpace.getMaxUtilityBid());
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		while (outcomes.size() < MAX_OUTCOMES)
+			outcomes.add(utilitySpace.getDomain().getRandomBid(rand));
+
+		return outcomes;
+	}
+
+	private static class IndexEntry
+	{
+		private final Bid bid;
+		private final double utility;
+
+		private IndexEntry(Bid bid, double utility)
+		{
+			this.bid = bid;
+			this.utility = utility;
+		}
+	}
+}
@@ -21,6 +21,7 @@ public class RandomBidderExample extends AbstractNegotiationParty
 {
 	private static double MINIMUM_TARGET = 0.8;
 	private Bid lastOffer;
+	private OutcomeIndex outcomeIndex;
 
 	/**
 	 * Initializes a new instance of the agent.
@@ -29,6 +30,7 @@ public class RandomBidderExample extends AbstractNegotiationParty
 	public void init(NegotiationInfo info) 
 	{
 		super.init(info);
+		outcomeIndex = new OutcomeIndex(utilitySpace, rand);
 	}
 
 	/**
@@ -50,19 +52,13 @@ public class RandomBidderExample extends AbstractNegotiationParty
 		return new Offer(getPartyId(), generateRandomBidAboveTarget());
 	}
 
+	/**
+	 * Draws uniformly from the bids above the target utility using the sorted outcome index
+	 * @return A random bid above the target
+	 */
 	private Bid generateRandomBidAboveTarget() 
 	{
-		Bid randomBid;
-		double util;
-		int i = 0;
-		// try 100 times to find a bid under the target utility
-		do 
-		{
-			randomBid = generateRandomBid();
-			util = utilitySpace.getUtility(randomBid);
-		} 
-		while (util < MINIMUM_TARGET && i++ < 100);		
-		return randomBid;
+		return outcomeIndex.getRandomBidAbove(MINIMUM_TARGET, rand);
 	}
 
 	/**
@@ -0,0 +1,326 @@
+package bilateralexamples;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.uncertainty.BidRanking;
+
+/**
+ * Index over a {@link BidRanking} that answers membership in O(1) and rank queries in O(log n).
+ * Bids are stored as their {@link BidCodec} codes in one long array, keyed by a hash of the code,
+ * and held in an order-statistic tree (an implicit treap) in ranking order, index 0 being the worst
+ * bid as in {@link BidRanking}. Bids are only decoded when they are read back.
+ * After an elicitation, the position of the new bid is found by binary search against the new
+ * ranking instead of rescanning it.
+ */
+public class RankingIndex
+{
+	private final BidCodec codec;
+	private final int noWords;
+	private final long[] query;
+	private final Random random = new Random(0);
+
+	private Node root;
+
+	// The codes of the indexed bids, by node id
+	private long[] codes;
+	private int noCodes;
+
+	// Open addressing table from the hash of a code to its tree node
+	private Node[] nodes;
+	private int mask;
+
+	/**
+	 * Builds the index over the bids of a ranking.
+	 * @param bidRanking The ranking, from worst to best
+	 */
+	public RankingIndex(BidRanking bidRanking)
+	{
+		this(bidRanking, new BidCodec(bidRanking.getMaximalBid().getDomain()));
+	}
+
+	/**
+	 * Builds the index over the bids of a ranking.
+	 * @param bidRanking The ranking, from worst to best
+	 * @param codec The codec of the domain of the ranking
+	 */
+	public RankingIndex(BidRanking bidRanking, BidCodec codec)
+	{
+		this.codec = codec;
+		noWords = codec.getNumberOfWords();
+		query = new long[noWords];
+		rebuild(bidRanking.getBidOrder());
+	}
+
+	public boolean contains(Bid bid)
+	{
+		return find(bid) != null;
+	}
+
+	/**
+	 * @param bid A bid
+	 * @return The index of the bid in the ranking, 0 being the worst, or -1 if it is not ranked
+	 */
+	public int indexOf(Bid bid)
+	{
+		Node node = find(bid);
+		if (node == null)
+			return -1;
+
+		int index = size(node.left);
+		for (Node child = node; child.parent != null; child = child.parent)
+		{
+			if (child == child.parent.right)
+				index += size(child.parent.left) + 1;
+		}
+		return index;
+	}
+
+	/**
+	 * The fraction of ranked bids that are at least as good as the bid.
+	 * @param bid A ranked bid
+	 * @return The percentile, close to 0 for the best bids
+	 */
+	public double getPercentile(Bid bid)
+	{
+		return (size() - indexOf(bid)) / (double) size();
+	}
+
+	/**
+	 * @param index An index in the ranking, 0 being the worst
+	 * @return The bid at the index
+	 */
+	public Bid get(int index)
+	{
+		return codec.decode(codes, getNode(index).id * noWords);
+	}
+
+	/**
+	 * Reads the option ordinals of a ranked bid without decoding it.
+	 * @param index An index in the ranking, 0 being the worst
+	 * @param ordinals The array to write the ordinal of every issue to, by slot
+	 */
+	public void getOrdinals(int index, int[] ordinals)
+	{
+		codec.decode(codes, getNode(index).id * noWords, ordinals);
+	}
+
+	public int size()
+	{
+		return size(root);
+	}
+
+	/**
+	 * Insert a bid at an index in the ranking, moving the bids from that index up by one.
+	 * @param bid A bid that is not yet ranked
+	 * @param index The index of the bid, 0 being the worst
+	 */
+	public void insert(Bid bid, int index)
+	{
+		Node node = newNode(bid);
+		Node[] parts = split(root, index);
+		root = merge(merge(parts[0], node), parts[1]);
+		root.parent = null;
+		put(node);
+	}
+
+	/**
+	 * Bring the index up to date with a ranking returned after an elicitation.
+	 * When the ranking grew by a single bid, the new bid is the first position at which the
+	 * rankings differ, which is found by binary search in O(log^2 n). Otherwise the index is rebuilt.
+	 * @param bidRanking The new ranking
+	 */
+	public void update(BidRanking bidRanking)
+	{
+		List<Bid> bidOrder = bidRanking.getBidOrder();
+		int size = size();
+		if (bidOrder.size() == size)
+			return;
+		if (bidOrder.size() != size + 1)
+		{
+			rebuild(bidOrder);
+			return;
+		}
+
+		int low = 0;
+		int high = size;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			codec.encode(bidOrder.get(mid), query, 0);
+			if (codec.equals(codes, getNode(mid).id * noWords, query, 0))
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		insert(bidOrder.get(low), low);
+	}
+
+	private Node getNode(int index)
+	{
+		Node node = root;
+		while (true)
+		{
+			int leftSize = size(node.left);
+			if (index < leftSize)
+				node = node.left;
+			else if (index == leftSize)
+				return node;
+			else
+			{
+				index -= leftSize + 1;
+				node = node.right;
+			}
+		}
+	}
+
+	private void rebuild(List<Bid> bidOrder)
+	{
+		int capacity = Integer.highestOneBit(Math.max(16, bidOrder.size() * 2)) << 1;
+		nodes = new Node[capacity];
+		mask = capacity - 1;
+		codes = new long[Math.max(16, bidOrder.size() + 1) * noWords];
+		noCodes = 0;
+		root = null;
+
+		// Appending in order: merging each bid as the new last one
+		for (Bid bid : bidOrder)
+		{
+			Node node = newNode(bid);
+			root = merge(root, node);
+			put(node);
+		}
+		if (root != null)
+			root.parent = null;
+	}
+
+	/**
+	 * Stores the code of the bid and makes a node for it.
+	 */
+	private Node newNode(Bid bid)
+	{
+		if ((noCodes + 1) * noWords > codes.length)
+			codes = Arrays.copyOf(codes, codes.length * 2);
+		codec.encode(bid, codes, noCodes * noWords);
+		return new Node(noCodes++, random.nextInt());
+	}
+
+	private Node find(Bid bid)
+	{
+		codec.encode(bid, query, 0);
+		for (int i = codec.hash(query, 0) & mask; nodes[i] != null; i = (i + 1) & mask)
+		{
+			if (codec.equals(codes, nodes[i].id * noWords, query, 0))
+				return nodes[i];
+		}
+		return null;
+	}
+
+	private void put(Node node)
+	{
+		if (size() * 2 > mask)
+			grow();
+
+		int i = codec.hash(codes, node.id * noWords) & mask;
+		while (nodes[i] != null)
+			i = (i + 1) & mask;
+		nodes[i] = node;
+	}
+
+	private void grow()
+	{
+		Node[] oldNodes = nodes;
+		nodes = new Node[oldNodes.length * 2];
+		mask = nodes.length - 1;
+		for (Node node : oldNodes)
+		{
+			if (node == null)
+				continue;
+			int i = codec.hash(codes, node.id * noWords) & mask;
+			while (nodes[i] != null)
+				i = (i + 1) & mask;
+			nodes[i] = node;
+		}
+	}
+
+	/**
+	 * Split a tree into its first count nodes and the rest.
+	 */
+	private static Node[] split(Node node, int count)
+	{
+		if (node == null)
+			return new Node[] { null, null };
+
+		Node[] parts;
+		if (size(node.left) < count)
+		{
+			parts = split(node.right, count - size(node.left) - 1);
+			node.setRight(parts[0]);
+			parts[0] = node;
+		}
+		else
+		{
+			parts = split(node.left, count);
+			node.setLeft(parts[1]);
+			parts[1] = node;
+		}
+		node.parent = null;
+		return parts;
+	}
+
+	private static Node merge(Node first, Node second)
+	{
+		if (first == null)
+			return second;
+		if (second == null)
+			return first;
+
+		if (first.priority > second.priority)
+		{
+			first.setRight(merge(first.right, second));
+			return first;
+		}
+		second.setLeft(merge(first, second.left));
+		return second;
+	}
+
+	private static int size(Node node)
+	{
+		return node == null ? 0 : node.size;
+	}
+
+	private static class Node
+	{
+		/** The position of the code of the bid among the stored codes */
+		private final int id;
+		private final int priority;
+		private int size = 1;
+		private Node left;
+		private Node right;
+		private Node parent;
+
+		private Node(int id, int priority)
+		{
+			this.id = id;
+			this.priority = priority;
+		}
+
+		private void setLeft(Node child)
+		{
+			left = child;
+			if (child != null)
+				child.parent = this;
+			size = 1 + size(left) + size(right);
+		}
+
+		private void setRight(Node child)
+		{
+			right = child;
+			if (child != null)
+				child.parent = this;
+			size = 1 + size(left) + size(right);
+		}
+	}
+}
@@ -1,10 +1,10 @@
 package bilateralexamples.boacomponents;
 
-import java.util.List;
-
+import bilateralexamples.RankingIndex;
 import genius.core.Bid;
 import genius.core.boaframework.AcceptanceStrategy;
 import genius.core.boaframework.Actions;
+import genius.core.uncertainty.BidRanking;
 import genius.core.uncertainty.UserModel;
 
 /**
@@ -19,6 +19,11 @@ import genius.core.uncertainty.UserModel;
  */
 public class AC_Uncertain extends AcceptanceStrategy {
 
+	/** Rank lookups into the ranking of the user model */
+	private RankingIndex rankingIndex;
+	/** The ranking the index was last brought up to date with */
+	private BidRanking indexedRanking;
+
 	@Override
 	public Actions determineAcceptability() {
 		Bid receivedBid = negotiationSession.getOpponentBidHistory()
@@ -30,11 +35,16 @@ public class AC_Uncertain extends AcceptanceStrategy {
 
 		UserModel userModel = negotiationSession.getUserModel();
 		if (userModel != null) {
-			List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
-			if (bidOrder.contains(receivedBid)) {
-				double percentile = (bidOrder.size()
-						- bidOrder.indexOf(receivedBid))
-						/ (double) bidOrder.size();
+			BidRanking bidRanking = userModel.getBidRanking();
+			if (rankingIndex == null) {
+				rankingIndex = new RankingIndex(bidRanking);
+			} else if (bidRanking != indexedRanking) {
+				rankingIndex.update(bidRanking);
+			}
+			indexedRanking = bidRanking;
+
+			if (rankingIndex.contains(receivedBid)) {
+				double percentile = rankingIndex.getPercentile(receivedBid);
 				if (percentile < 0.1)
 					return Actions.Accept;
 			}
@@ -0,0 +1,188 @@
+package bilateralexamples.boacomponents;
+
+import java.util.Arrays;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.AcceptanceStrategy;
+import genius.core.boaframework.Actions;
+import genius.core.boaframework.BOAparameter;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OfferingStrategy;
+import genius.core.boaframework.OpponentModel;
+
+/**
+ * This Acceptance Condition combines AC_Next with conditions on a sliding
+ * window of the opponent bid history. It accepts the opponent bid if:
+ * <ul>
+ * <li>the utility * a + b is at least the utility of the bid the agent is ready
+ * to present (AC_Next);
+ * <li>after time tmax, the utility is at least the best utility offered by the
+ * opponent within the window (AC_Combi MAX^W);
+ * <li>after time tavg, the utility is at least the average utility offered by
+ * the opponent within the window (AC_Combi AVG^W);
+ * <li>after time tend, the utility is at least the reservation value
+ * (AC_Time).
+ * </ul>
+ * The window holds the opponent bids of the last w of the negotiation time, or
+ * of the last stretch as long as the time remaining if w is 0. Its maximum is
+ * kept in a monotonic deque and its average in a running sum, so every
+ * condition is O(1) amortised per turn however long the history grows.
+ * 
+ * Decoupling Negotiating Agents to Explore the Space of Negotiation Strategies
+ * T. Baarslag, K. Hindriks, M. Hendrikx, A. Dirkzwager, C.M. Jonker
+ */
+public class AC_Window extends AcceptanceStrategy {
+
+	private double a;
+	private double b;
+	private double tMax;
+	private double tAvg;
+	private double tEnd;
+	private double w;
+
+	// Utilities and times of all opponent bids seen, the window is [windowStart, noBids)
+	private double[] utilities = new double[64];
+	private double[] times = new double[64];
+	private int noBids = 0;
+	private int windowStart = 0;
+	private double windowSum = 0;
+
+	// Indices of the window by descending utility, the maximum at the head
+	private int[] maxDeque = new int[64];
+	private int dequeHead = 0;
+	private int dequeTail = 0;
+
+	/**
+	 * Empty constructor for the BOA framework.
+	 */
+	public AC_Window() {
+	}
+
+	@Override
+	public void init(NegotiationSession negoSession, OfferingStrategy strat,
+			OpponentModel opponentModel, Map<String, Double> parameters)
+			throws Exception {
+		this.negotiationSession = negoSession;
+		this.offeringStrategy = strat;
+
+		a = getParameter(parameters, "a", 1);
+		b = getParameter(parameters, "b", 0);
+		tMax = getParameter(parameters, "tmax", 0.98);
+		tAvg = getParameter(parameters, "tavg", 0.99);
+		tEnd = getParameter(parameters, "tend", 0.999);
+		w = getParameter(parameters, "w", 0);
+	}
+
+	@Override
+	public String printParameters() {
+		return "[a: " + a + " b: " + b + " tmax: " + tMax + " tavg: " + tAvg
+				+ " tend: " + tEnd + " w: " + w + "]";
+	}
+
+	@Override
+	public Actions determineAcceptability() {
+		double nextMyBidUtil = offeringStrategy.getNextBid()
+				.getMyUndiscountedUtil();
+		double lastOpponentBidUtil = negotiationSession.getOpponentBidHistory()
+				.getLastBidDetails().getMyUndiscountedUtil();
+
+		if (a * lastOpponentBidUtil + b >= nextMyBidUtil) {
+			return Actions.Accept;
+		}
+
+		double time = negotiationSession.getTime();
+		if (time < Math.min(tEnd, Math.min(tMax, tAvg))) {
+			return Actions.Reject;
+		}
+		slideWindow(time);
+
+		if (time >= tMax && lastOpponentBidUtil >= utilities[maxDeque[dequeHead]]) {
+			return Actions.Accept;
+		}
+		if (time >= tAvg && lastOpponentBidUtil >= windowSum / (noBids - windowStart)) {
+			return Actions.Accept;
+		}
+		if (time >= tEnd && lastOpponentBidUtil >= negotiationSession
+				.getUtilitySpace().getReservationValue()) {
+			return Actions.Accept;
+		}
+		return Actions.Reject;
+	}
+
+	/**
+	 * Adds the opponent bids received since the last turn to the window, and
+	 * drops the bids that fell out of it. The window start only moves forward
+	 * in time, so every bid enters and leaves the window once.
+	 */
+	private void slideWindow(double time) {
+		List<BidDetails> history = negotiationSession.getOpponentBidHistory()
+				.getHistory();
+		for (int i = noBids; i < history.size(); i++) {
+			BidDetails bid = history.get(i);
+			add(bid.getMyUndiscountedUtil(), bid.getTime() >= 0 ? bid.getTime() : time);
+		}
+
+		double windowBegin = w > 0 ? time - w : time - (1 - time);
+		// The last bid always stays, so the window is never empty
+		while (windowStart < noBids - 1 && times[windowStart] < windowBegin) {
+			windowSum -= utilities[windowStart];
+			if (maxDeque[dequeHead] == windowStart) {
+				dequeHead++;
+			}
+			windowStart++;
+		}
+	}
+
+	private void add(double utility, double time) {
+		if (noBids == utilities.length) {
+			utilities = Arrays.copyOf(utilities, noBids * 2);
+			times = Arrays.copyOf(times, noBids * 2);
+			maxDeque = Arrays.copyOf(maxDeque, noBids * 2);
+		}
+		utilities[noBids] = utility;
+		times[noBids] = time;
+		windowSum += utility;
+
+		// Bids that are not better than the new one can never be the maximum again
+		while (dequeTail > dequeHead && utilities[maxDeque[dequeTail - 1]] <= utility) {
+			dequeTail--;
+		}
+		maxDeque[dequeTail++] = noBids;
+		noBids++;
+	}
+
+	private static double getParameter(Map<String, Double> parameters,
+			String name, double defaultValue) {
+		Double value = parameters == null ? null : parameters.get(name);
+		return value != null ? value : defaultValue;
+	}
+
+	@Override
+	public Set<BOAparameter> getParameterSpec() {
+
+		Set<BOAparameter> set = new HashSet<BOAparameter>();
+		set.add(new BOAparameter("a", 1.0,
+				"Accept when the opponent's utility * a + b is greater than the utility of our current bid"));
+		set.add(new BOAparameter("b", 0.0,
+				"Accept when the opponent's utility * a + b is greater than the utility of our current bid"));
+		set.add(new BOAparameter("tmax", 0.98,
+				"Time after which to accept bids at least as good as the best opponent bid in the window"));
+		set.add(new BOAparameter("tavg", 0.99,
+				"Time after which to accept bids at least as good as the average opponent bid in the window"));
+		set.add(new BOAparameter("tend", 0.999,
+				"Time after which to accept bids above the reservation value"));
+		set.add(new BOAparameter("w", 0.0,
+				"Length of the window as a fraction of the negotiation time, or 0 for the time remaining"));
+
+		return set;
+	}
+
+	@Override
+	public String getName() {
+		return "AC_Window example";
+	}
+}
@@ -0,0 +1,33 @@
+package bilateralexamples.boacomponents;
+
+import java.util.List;
+
+import genius.core.bidding.BidDetails;
+
+/**
+ * An opponent model that can evaluate ranges of bids at once, for OM strategies
+ * that score many candidate bids per turn.
+ */
+public interface BatchEvaluatingModel {
+
+	/**
+	 * Evaluates a range of bids. Implementations must allow concurrent calls on
+	 * disjoint ranges, as long as the model is not updated in the meantime.
+	 * 
+	 * @param bids
+	 *            the candidate bids.
+	 * @param from
+	 *            the first index to evaluate.
+	 * @param to
+	 *            the index after the last one to evaluate.
+	 * @param evaluations
+	 *            receives the evaluation of bid i at index i.
+	 */
+	void getBidEvaluations(List<BidDetails> bids, int from, int to, double[] evaluations);
+
+	/**
+	 * @return a number that changes whenever an update changes the evaluations
+	 *         of the model.
+	 */
+	long getVersion();
+}
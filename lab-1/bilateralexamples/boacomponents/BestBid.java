@@ -3,15 +3,22 @@ package bilateralexamples.boacomponents;
 import java.util.List;
 
 import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.Random;
 import java.util.Set;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.function.Supplier;
 
 import genius.core.bidding.BidDetails;
 import genius.core.boaframework.BOAparameter;
 import genius.core.boaframework.NegotiationSession;
 import genius.core.boaframework.OMStrategy;
 import genius.core.boaframework.OpponentModel;
+import genius.core.boaframework.OutcomeSpace;
+import genius.core.boaframework.SortedOutcomeSpace;
+import genius.core.misc.Range;
 
 /**
  * This class uses an opponent model to determine the next bid for the opponent,
@@ -27,6 +34,33 @@ public class BestBid extends OMStrategy {
 	 */
 	double updateThreshold = 1.1;
 
+	/**
+	 * candidate lists at least this long are scored in parallel, if the model
+	 * supports batch evaluation.
+	 */
+	private static final int PARALLEL_THRESHOLD = 4096;
+	/** the number of candidate windows whose best bid is remembered. */
+	private static final int MAX_CACHED_WINDOWS = 64;
+
+	/** picks a random bid when the opponent model does not work. */
+	private final Random random = new Random();
+	/** evaluations of the candidates of the current turn. */
+	private double[] evaluations = new double[0];
+	/**
+	 * the best bid of each recent window of candidates, valid for the model
+	 * version it was found with.
+	 */
+	private final Map<CandidateWindow, BidDetails> bestPerWindow = new LinkedHashMap<CandidateWindow, BidDetails>(
+			16, 0.75f, true) {
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<CandidateWindow, BidDetails> eldest) {
+			return size() > MAX_CACHED_WINDOWS;
+		}
+	};
+	private long cachedVersion = -1;
+	/** whether the last bid was picked at random, which is not remembered. */
+	private boolean pickedAtRandom;
+
 	/**
 	 * Initializes the opponent model strategy. If a value for the parameter t
 	 * is given, then it is set to this value. Otherwise, the default value is
@@ -50,6 +84,52 @@ public class BestBid extends OMStrategy {
 		}
 	}
 
+	/**
+	 * Returns the best bid for the opponent among the bids of the outcome space
+	 * within the range. If the model supports batch evaluation, the best bid of
+	 * a range is remembered until the model changes.
+	 */
+	@Override
+	public BidDetails getBid(OutcomeSpace space, Range range) {
+		return getBid(space, range.getLowerbound(), range.getUpperbound(), () -> super.getBid(space, range));
+	}
+
+	/**
+	 * Returns the best bid for the opponent among the bids of the outcome space
+	 * near the target utility. If the model supports batch evaluation, the best
+	 * bid of a target is remembered until the model changes.
+	 */
+	@Override
+	public BidDetails getBid(SortedOutcomeSpace space, double targetUtility) {
+		return getBid(space, targetUtility, Double.NaN, () -> super.getBid(space, targetUtility));
+	}
+
+	/**
+	 * Looks up the best bid of a window of the outcome space, or finds and
+	 * remembers it. A window is identified by the space and the bounds it was
+	 * asked for, since an outcome space always returns the same bids for them.
+	 */
+	private BidDetails getBid(OutcomeSpace space, double lowerBound, double upperBound, Supplier<BidDetails> search) {
+		if (!(model instanceof BatchEvaluatingModel)) {
+			return search.get();
+		}
+		long version = ((BatchEvaluatingModel) model).getVersion();
+		if (version != cachedVersion) {
+			bestPerWindow.clear();
+			cachedVersion = version;
+		}
+		CandidateWindow window = new CandidateWindow(space, lowerBound, upperBound);
+		BidDetails best = bestPerWindow.get(window);
+		if (best == null) {
+			pickedAtRandom = false;
+			best = search.get();
+			if (!pickedAtRandom && best != null) {
+				bestPerWindow.put(window, best);
+			}
+		}
+		return best;
+	}
+
 	/**
 	 * Returns the best bid for the opponent given a set of similarly preferred
 	 * bids.
@@ -65,6 +145,8 @@ public class BestBid extends OMStrategy {
 		if (allBids.size() == 1) {
 			return allBids.get(0);
 		}
+		evaluate(allBids);
+
 		double bestUtil = -1;
 		BidDetails bestBid = allBids.get(0);
 
@@ -73,24 +155,46 @@ public class BestBid extends OMStrategy {
 		// does not work, offer a random bid.
 		boolean allWereZero = true;
 		// 3. Determine the best bid
-		for (BidDetails bid : allBids) {
-			double evaluation = model.getBidEvaluation(bid.getBid());
+		for (int i = 0; i < allBids.size(); i++) {
+			double evaluation = evaluations[i];
 			if (evaluation > 0.0001) {
 				allWereZero = false;
 			}
 			if (evaluation > bestUtil) {
-				bestBid = bid;
+				bestBid = allBids.get(i);
 				bestUtil = evaluation;
 			}
 		}
 		// 4. The opponent model did not work, therefore, offer a random bid.
 		if (allWereZero) {
-			Random r = new Random();
-			return allBids.get(r.nextInt(allBids.size()));
+			pickedAtRandom = true;
+			return allBids.get(random.nextInt(allBids.size()));
 		}
 		return bestBid;
 	}
 
+	/**
+	 * Evaluates all candidates into {@link #evaluations}, split over the
+	 * fork-join pool for long lists if the model supports batch evaluation.
+	 */
+	private void evaluate(List<BidDetails> allBids) {
+		int size = allBids.size();
+		if (evaluations.length < size) {
+			evaluations = new double[size];
+		}
+
+		if (!(model instanceof BatchEvaluatingModel)) {
+			for (int i = 0; i < size; i++) {
+				evaluations[i] = model.getBidEvaluation(allBids.get(i).getBid());
+			}
+		} else if (size < PARALLEL_THRESHOLD) {
+			((BatchEvaluatingModel) model).getBidEvaluations(allBids, 0, size, evaluations);
+		} else {
+			ForkJoinPool.commonPool().invoke(
+					new EvaluationTask((BatchEvaluatingModel) model, allBids, 0, size, evaluations));
+		}
+	}
+
 	/**
 	 * The opponent model may be updated, unless the time is higher than a given
 	 * constant.
@@ -113,4 +217,68 @@ public class BestBid extends OMStrategy {
 	public String getName() {
 		return "BestBid example";
 	}
+
+	/**
+	 * Splits a range of candidates in halves until they are short enough to
+	 * evaluate on one thread.
+	 */
+	@SuppressWarnings("serial")
+	private static class EvaluationTask extends RecursiveAction {
+		private final BatchEvaluatingModel model;
+		private final List<BidDetails> bids;
+		private final int from;
+		private final int to;
+		private final double[] evaluations;
+
+		EvaluationTask(BatchEvaluatingModel model, List<BidDetails> bids, int from, int to, double[] evaluations) {
+			this.model = model;
+			this.bids = bids;
+			this.from = from;
+			this.to = to;
+			this.evaluations = evaluations;
+		}
+
+		@Override
+		protected void compute() {
+			if (to - from <= PARALLEL_THRESHOLD) {
+				model.getBidEvaluations(bids, from, to, evaluations);
+				return;
+			}
+			int mid = (from + to) >>> 1;
+			invokeAll(new EvaluationTask(model, bids, from, mid, evaluations),
+					new EvaluationTask(model, bids, mid, to, evaluations));
+		}
+	}
+
+	/**
+	 * Identifies a window of candidates by the outcome space it comes from and
+	 * the bounds it was asked for. A target utility is kept as the lower bound,
+	 * with an upper bound that is not a number.
+	 */
+	private static class CandidateWindow {
+		private final OutcomeSpace space;
+		private final double lowerBound;
+		private final double upperBound;
+
+		CandidateWindow(OutcomeSpace space, double lowerBound, double upperBound) {
+			this.space = space;
+			this.lowerBound = lowerBound;
+			this.upperBound = upperBound;
+		}
+
+		@Override
+		public boolean equals(Object obj) {
+			if (!(obj instanceof CandidateWindow)) {
+				return false;
+			}
+			CandidateWindow other = (CandidateWindow) obj;
+			return space == other.space && Double.compare(lowerBound, other.lowerBound) == 0
+					&& Double.compare(upperBound, other.upperBound) == 0;
+		}
+
+		@Override
+		public int hashCode() {
+			return 31 * (31 * System.identityHashCode(space) + Double.hashCode(lowerBound)) + Double.hashCode(upperBound);
+		}
+	}
 }
\ No newline at end of file
@@ -0,0 +1,247 @@
+package bilateralexamples.boacomponents;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+import genius.core.Bid;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.BOAparameter;
+import genius.core.boaframework.BidHistory;
+import genius.core.boaframework.NegotiationSession;
+import genius.core.boaframework.OpponentModel;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Objective;
+import genius.core.issue.ValueDiscrete;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.Evaluator;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * The HardHeaded Frequency Model of {@link HardHeadedFrequencyModel}, specialised to
+ * discrete issues. Issue weights are kept in a double[] and value counts in a double[][]
+ * indexed by slot and value ordinal, so updates and evaluations neither allocate nor go
+ * through the generic utility space.
+ * 
+ * Default: learning coef l = 0.2; learnValueAddition v = 1.0
+ */
+public class FlatHardHeadedFrequencyModel extends OpponentModel implements BatchEvaluatingModel {
+
+	/*
+	 * the learning coefficient is the weight that is added each turn to the
+	 * issue weights which changed. It's a trade-off between concession speed
+	 * and accuracy.
+	 */
+	private double learnCoef;
+	/*
+	 * value which is added to a value if it is found. Determines how fast the
+	 * value weights converge.
+	 */
+	private int learnValueAddition;
+	private int amountOfIssues;
+	private double goldenValue;
+
+	private IssueDiscrete[] issues;
+	private List<HashMap<ValueDiscrete, Integer>> ordinals;
+	private double[] weights;
+	/** How often each value was offered, plus one */
+	private double[][] counts;
+	/** The highest count of each issue, which normalises its evaluations */
+	private double[] maxCounts;
+
+	// Ordinals of the last two opponent bids, and the history size when the last was recorded
+	private int[] lastOrdinals;
+	private int[] previousOrdinals;
+	private int recordedAt = -1;
+	/** The number of updates that changed the model */
+	private long version = 0;
+
+	@Override
+	public void init(NegotiationSession negotiationSession,
+			Map<String, Double> parameters) {
+		this.negotiationSession = negotiationSession;
+		if (parameters != null && parameters.get("l") != null) {
+			learnCoef = parameters.get("l");
+		} else {
+			learnCoef = 0.2;
+		}
+		learnValueAddition = 1;
+
+		List<Issue> domainIssues = negotiationSession.getUtilitySpace()
+				.getDomain().getIssues();
+		amountOfIssues = domainIssues.size();
+		/*
+		 * This is the value to be added to weights of unchanged issues before
+		 * normalization. Also the value that is taken as the minimum possible
+		 * weight, (therefore defining the maximum possible also).
+		 */
+		goldenValue = learnCoef / amountOfIssues;
+
+		issues = new IssueDiscrete[amountOfIssues];
+		ordinals = new ArrayList<HashMap<ValueDiscrete, Integer>>(amountOfIssues);
+		weights = new double[amountOfIssues];
+		counts = new double[amountOfIssues][];
+		maxCounts = new double[amountOfIssues];
+		lastOrdinals = new int[amountOfIssues];
+		previousOrdinals = new int[amountOfIssues];
+
+		// Init to flat weight and flat evaluation distribution
+		for (int slot = 0; slot < amountOfIssues; slot++) {
+			issues[slot] = (IssueDiscrete) domainIssues.get(slot);
+			List<ValueDiscrete> values = issues[slot].getValues();
+			HashMap<ValueDiscrete, Integer> valueOrdinals = new HashMap<ValueDiscrete, Integer>();
+			for (int ordinal = 0; ordinal < values.size(); ordinal++)
+				valueOrdinals.put(values.get(ordinal), ordinal);
+			ordinals.add(valueOrdinals);
+
+			weights[slot] = 1D / amountOfIssues;
+			counts[slot] = new double[values.size()];
+			Arrays.fill(counts[slot], 1);
+			maxCounts[slot] = 1;
+		}
+	}
+
+	@Override
+	public void updateModel(Bid opponentBid, double time) {
+		BidHistory history = negotiationSession.getOpponentBidHistory();
+		int size = history.size();
+		if (size < 2) {
+			if (size == 1)
+				record(history.getHistory().get(0).getBid(), 1);
+			return;
+		}
+		if (recordedAt != size - 1)
+			record(history.getHistory().get(size - 2).getBid(), size - 1);
+		record(history.getHistory().get(size - 1).getBid(), size);
+
+		// count the number of changes in value
+		int numberOfUnchanged = 0;
+		for (int slot = 0; slot < amountOfIssues; slot++) {
+			if (lastOrdinals[slot] == previousOrdinals[slot])
+				numberOfUnchanged++;
+		}
+
+		// The total sum of weights before normalization.
+		double totalSum = 1D + goldenValue * numberOfUnchanged;
+		// The maximum possible weight
+		double maximumWeight = 1D - (amountOfIssues) * goldenValue / totalSum;
+
+		/*
+		 * re-weighing issues one by one. Like AdditiveUtilitySpace.setWeight,
+		 * every new weight is followed by a normalization of all weights to a
+		 * sum of 1, which is kept as a common scale of the weights instead.
+		 */
+		double scale = 1;
+		for (int slot = 0; slot < amountOfIssues; slot++) {
+			double weight = weights[slot] * scale;
+			double newWeight;
+			if (lastOrdinals[slot] == previousOrdinals[slot]
+					&& weight < maximumWeight) {
+				newWeight = (weight + goldenValue) / totalSum;
+			} else {
+				newWeight = weight / totalSum;
+			}
+			weights[slot] = newWeight / scale;
+			scale /= 1 - weight + newWeight;
+		}
+		for (int slot = 0; slot < amountOfIssues; slot++)
+			weights[slot] *= scale;
+
+		// Then for each issue value that has been offered last time, a constant
+		// value is added to its corresponding ValueDiscrete.
+		for (int slot = 0; slot < amountOfIssues; slot++) {
+			double count = counts[slot][lastOrdinals[slot]] += learnValueAddition;
+			if (count > maxCounts[slot])
+				maxCounts[slot] = count;
+		}
+		version++;
+	}
+
+	@Override
+	public double getBidEvaluation(Bid bid) {
+		double result = 0;
+		for (int slot = 0; slot < amountOfIssues; slot++) {
+			int ordinal = ordinals.get(slot).get(bid.getValue(issues[slot].getNumber()));
+			result += weights[slot] * counts[slot][ordinal] / maxCounts[slot];
+		}
+		return result;
+	}
+
+	/**
+	 * Evaluations only read the arrays of the model, so disjoint ranges can be
+	 * evaluated concurrently.
+	 */
+	@Override
+	public void getBidEvaluations(List<BidDetails> bids, int from, int to, double[] evaluations) {
+		for (int i = from; i < to; i++)
+			evaluations[i] = getBidEvaluation(bids.get(i).getBid());
+	}
+
+	@Override
+	public long getVersion() {
+		return version;
+	}
+
+	@Override
+	public double getWeight(Issue issue) {
+		for (int slot = 0; slot < amountOfIssues; slot++) {
+			if (issues[slot].getNumber() == issue.getNumber())
+				return weights[slot];
+		}
+		return 0;
+	}
+
+	@Override
+	public double[] getIssueWeights() {
+		return weights.clone();
+	}
+
+	/**
+	 * @return A new utility space with the current weights and evaluations of the model
+	 */
+	@Override
+	public AbstractUtilitySpace getOpponentUtilitySpace() {
+		Map<Objective, Evaluator> evaluators = new HashMap<Objective, Evaluator>();
+		for (int slot = 0; slot < amountOfIssues; slot++) {
+			EvaluatorDiscrete evaluator = new EvaluatorDiscrete();
+			evaluator.setWeight(weights[slot]);
+			List<ValueDiscrete> values = issues[slot].getValues();
+			for (int ordinal = 0; ordinal < values.size(); ordinal++)
+				evaluator.setEvaluationDouble(values.get(ordinal), counts[slot][ordinal]);
+			evaluators.put(issues[slot], evaluator);
+		}
+		return new AdditiveUtilitySpace(negotiationSession.getUtilitySpace().getDomain(), evaluators);
+	}
+
+	@Override
+	public String getName() {
+		return "Flat HardHeaded Frequency Model";
+	}
+
+	@Override
+	public Set<BOAparameter> getParameterSpec() {
+		Set<BOAparameter> set = new HashSet<BOAparameter>();
+		set.add(new BOAparameter("l", 0.2,
+				"The learning coefficient determines how quickly the issue weights are learned"));
+		return set;
+	}
+
+	/**
+	 * Stores the ordinals of an opponent bid as the last bid, shifting the
+	 * last bid to the previous one.
+	 */
+	private void record(Bid bid, int historySize) {
+		int[] swap = previousOrdinals;
+		previousOrdinals = lastOrdinals;
+		lastOrdinals = swap;
+		for (int slot = 0; slot < amountOfIssues; slot++)
+			lastOrdinals[slot] = ordinals.get(slot).get(bid.getValue(issues[slot].getNumber()));
+		recordedAt = historySize;
+	}
+}
@@ -0,0 +1,331 @@
+package bilateralexamples.boacomponents;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.bidding.BidDetails;
+import genius.core.boaframework.OutcomeSpace;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.issue.ValueDiscrete;
+import genius.core.misc.Range;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * An outcome space over an additive utility space with discrete issues that
+ * never enumerates the whole domain. The options of every issue are kept
+ * sorted by weighted evaluation, and bids are generated on demand by a depth
+ * first search over the issues that prunes every branch whose utility bounds
+ * miss the requested utility. Utility windows return at most the
+ * {@link #MAX_WINDOW_BIDS} best bids in the window, so memory stays bounded on
+ * domains with millions of outcomes. For the same reason
+ * {@link #getAllOutcomes()} is the window of the {@link #MAX_WINDOW_BIDS} best
+ * bids, and indexes refer to it.
+ * 
+ * Issues are indexed by slot in domain order, and options by their ordinal in
+ * {@link IssueDiscrete#getValues()}.
+ */
+public class LazyOutcomeSpace extends OutcomeSpace {
+
+	/** The most bids returned for a utility window. */
+	public static final int MAX_WINDOW_BIDS = 10000;
+	/** Searches for a bid near a utility stop once one is this close. */
+	private static final double EPSILON = 1e-5;
+	/** Searches for a bid near a utility stop after visiting this many partial bids. */
+	private static final int MAX_NODES = 100000;
+
+	private final Domain domain;
+	private final IssueDiscrete[] issues;
+	/** Weighted evaluation of each option, indexed by slot and ordinal. */
+	private final double[][] contributions;
+	/** The options of each issue by descending contribution. */
+	private final int[][] bestFirst;
+	/** The highest and lowest utility the issues from a slot on can add. */
+	private final double[] maxRemaining;
+	private final double[] minRemaining;
+
+	// State of the searches
+	private final int[] ordinals;
+	private final int[][] orderBuffers;
+	private int[] bestOrdinals;
+	private double bestDistance;
+	private int noNodes;
+	/** The best bids, by descending utility, generated on first use. */
+	private List<BidDetails> bestWindow;
+
+	/**
+	 * Sorts the options of every issue of the utility space, which takes time
+	 * and memory linear in the number of options rather than outcomes.
+	 * 
+	 * @param utilitySpace
+	 *            an additive utility space over discrete issues.
+	 */
+	public LazyOutcomeSpace(AdditiveUtilitySpace utilitySpace) {
+		this.utilitySpace = utilitySpace;
+		domain = utilitySpace.getDomain();
+		List<Issue> domainIssues = domain.getIssues();
+		int noIssues = domainIssues.size();
+		issues = new IssueDiscrete[noIssues];
+		contributions = new double[noIssues][];
+		bestFirst = new int[noIssues][];
+		orderBuffers = new int[noIssues][];
+		maxRemaining = new double[noIssues + 1];
+		minRemaining = new double[noIssues + 1];
+		ordinals = new int[noIssues];
+
+		for (int slot = 0; slot < noIssues; slot++) {
+			issues[slot] = (IssueDiscrete) domainIssues.get(slot);
+			int issueNumber = issues[slot].getNumber();
+			double weight = utilitySpace.getWeight(issueNumber);
+			EvaluatorDiscrete evaluator = (EvaluatorDiscrete) utilitySpace.getEvaluator(issueNumber);
+
+			List<ValueDiscrete> values = issues[slot].getValues();
+			contributions[slot] = new double[values.size()];
+			for (int ordinal = 0; ordinal < values.size(); ordinal++) {
+				try {
+					contributions[slot][ordinal] = weight * evaluator.getEvaluation(values.get(ordinal));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+			bestFirst[slot] = sortByDescendingContribution(contributions[slot]);
+			orderBuffers[slot] = new int[values.size()];
+		}
+
+		for (int slot = noIssues - 1; slot >= 0; slot--) {
+			int[] order = bestFirst[slot];
+			maxRemaining[slot] = maxRemaining[slot + 1] + contributions[slot][order[0]];
+			minRemaining[slot] = minRemaining[slot + 1] + contributions[slot][order[order.length - 1]];
+		}
+	}
+
+	/**
+	 * The best bids of the domain by descending utility, up to
+	 * {@link #MAX_WINDOW_BIDS}, since the point of this outcome space is to
+	 * never hold all outcomes.
+	 */
+	@Override
+	public List<BidDetails> getAllOutcomes() {
+		if (bestWindow == null)
+			bestWindow = Collections.unmodifiableList(window(minRemaining[0], Double.POSITIVE_INFINITY));
+		return bestWindow;
+	}
+
+	/**
+	 * The bids with a utility within the range by descending utility. Of a
+	 * range with more than {@link #MAX_WINDOW_BIDS} bids, the lowest are left
+	 * out.
+	 */
+	@Override
+	public List<BidDetails> getBidsinRange(Range range) {
+		return window(range.getLowerbound(), range.getUpperbound());
+	}
+
+	@Override
+	public BidDetails getBidNearUtility(double utility) {
+		return getBidNearUtility(utility, Double.NEGATIVE_INFINITY, Double.POSITIVE_INFINITY);
+	}
+
+	/**
+	 * The bid with the utility closest to the goal among the bids with a
+	 * utility within the bounds, found by branch-and-bound. The search settles
+	 * for a bid within {@value #EPSILON} of the goal, or the closest one after
+	 * {@value #MAX_NODES} partial bids.
+	 * 
+	 * @return the closest bid, or null if no bid lies within the bounds
+	 */
+	@Override
+	public BidDetails getBidNearUtility(double utility, double lowerBound, double upperBound) {
+		bestOrdinals = null;
+		bestDistance = Double.POSITIVE_INFINITY;
+		noNodes = 0;
+		nearest(0, 0, utility, lowerBound, upperBound);
+		return bestOrdinals == null ? null : toBidDetails(bestOrdinals);
+	}
+
+	@Override
+	public BidDetails getMaxBidPossible() {
+		for (int slot = 0; slot < issues.length; slot++)
+			ordinals[slot] = bestFirst[slot][0];
+		return toBidDetails(ordinals);
+	}
+
+	@Override
+	public BidDetails getMinBidPossible() {
+		for (int slot = 0; slot < issues.length; slot++)
+			ordinals[slot] = bestFirst[slot][bestFirst[slot].length - 1];
+		return toBidDetails(ordinals);
+	}
+
+	/**
+	 * The index in {@link #getAllOutcomes()} of the bid with the utility
+	 * closest to the given one. Below the window, that is its worst bid.
+	 */
+	@Override
+	public int getIndexOfBidNearUtility(double utility) {
+		List<BidDetails> window = getAllOutcomes();
+		// Binary search for the first bid at or below the utility
+		int low = 0;
+		int high = window.size();
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (window.get(mid).getMyUndiscountedUtil() > utility)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		if (low == window.size())
+			return low - 1;
+		if (low > 0 && window.get(low - 1).getMyUndiscountedUtil() - utility < utility
+				- window.get(low).getMyUndiscountedUtil())
+			return low - 1;
+		return low;
+	}
+
+	/**
+	 * The best bids with a utility within the bounds, up to
+	 * {@link #MAX_WINDOW_BIDS}, by descending utility. The search generates
+	 * bids depth first, which is not by utility, so the lower bound is first
+	 * raised until the window holds no more bids than that.
+	 */
+	private List<BidDetails> window(double lowerBound, double upperBound) {
+		// Bisect for the lowest utility above which the window still holds every bid
+		double low = Math.max(lowerBound, minRemaining[0]);
+		double high = Math.min(upperBound, maxRemaining[0]);
+		if (low <= high && count(0, 0, low, upperBound, MAX_WINDOW_BIDS + 1) > MAX_WINDOW_BIDS) {
+			for (int i = 0; i < 50; i++) {
+				double mid = (low + high) / 2;
+				if (count(0, 0, mid, upperBound, MAX_WINDOW_BIDS + 1) > MAX_WINDOW_BIDS)
+					low = mid;
+				else
+					high = mid;
+			}
+			low = high;
+		}
+		List<BidDetails> bids = new ArrayList<BidDetails>();
+		collect(0, 0, low, upperBound, bids);
+		bids.sort((a, b) -> Double.compare(b.getMyUndiscountedUtil(), a.getMyUndiscountedUtil()));
+		return bids;
+	}
+
+	private void collect(int slot, double partial, double lowerBound, double upperBound, List<BidDetails> bids) {
+		if (slot == issues.length) {
+			bids.add(toBidDetails(ordinals));
+			return;
+		}
+
+		for (int ordinal : bestFirst[slot]) {
+			if (bids.size() >= MAX_WINDOW_BIDS)
+				return;
+			double next = partial + contributions[slot][ordinal];
+			if (next + minRemaining[slot + 1] > upperBound)
+				continue;
+			// Options are tried best first, so the later ones fall short as well
+			if (next + maxRemaining[slot + 1] < lowerBound)
+				return;
+			ordinals[slot] = ordinal;
+			collect(slot + 1, next, lowerBound, upperBound, bids);
+		}
+	}
+
+	/**
+	 * Counts the bids with a utility within the bounds, stopping at the limit.
+	 */
+	private int count(int slot, double partial, double lowerBound, double upperBound, int limit) {
+		if (slot == issues.length)
+			return 1;
+
+		int total = 0;
+		for (int ordinal : bestFirst[slot]) {
+			double next = partial + contributions[slot][ordinal];
+			if (next + minRemaining[slot + 1] > upperBound)
+				continue;
+			if (next + maxRemaining[slot + 1] < lowerBound)
+				break;
+			total += count(slot + 1, next, lowerBound, upperBound, limit - total);
+			if (total >= limit)
+				break;
+		}
+		return total;
+	}
+
+	private void nearest(int slot, double partial, double goal, double lowerBound, double upperBound) {
+		noNodes++;
+		if (slot == issues.length) {
+			double distance = Math.abs(partial - goal);
+			if (partial >= lowerBound && partial <= upperBound && distance < bestDistance) {
+				bestDistance = distance;
+				bestOrdinals = ordinals.clone();
+			}
+			return;
+		}
+
+		// Try first the options that leave the goal in the middle of what the remaining issues can add
+		double middle = (maxRemaining[slot + 1] + minRemaining[slot + 1]) / 2;
+		int[] order = orderBuffers[slot];
+		int noOptions = order.length;
+		for (int i = 0; i < noOptions; i++)
+			order[i] = i;
+		sortByCloseness(order, contributions[slot], goal - partial - middle);
+
+		for (int i = 0; i < noOptions && bestDistance > EPSILON && noNodes < MAX_NODES; i++) {
+			int ordinal = order[i];
+			double next = partial + contributions[slot][ordinal];
+			double low = Math.max(next + minRemaining[slot + 1], lowerBound);
+			double high = Math.min(next + maxRemaining[slot + 1], upperBound);
+			if (low > high)
+				continue;
+			double distance = goal < low ? low - goal : goal > high ? goal - high : 0;
+			if (distance >= bestDistance)
+				continue;
+			ordinals[slot] = ordinal;
+			nearest(slot + 1, next, goal, lowerBound, upperBound);
+		}
+	}
+
+	private BidDetails toBidDetails(int[] bidOrdinals) {
+		HashMap<Integer, Value> values = new HashMap<Integer, Value>();
+		for (int slot = 0; slot < issues.length; slot++)
+			values.put(issues[slot].getNumber(), issues[slot].getValue(bidOrdinals[slot]));
+		Bid bid = new Bid(domain, values);
+		return new BidDetails(bid, utilitySpace.getUtility(bid));
+	}
+
+	private static int[] sortByDescendingContribution(double[] issueContributions) {
+		int noOptions = issueContributions.length;
+		int[] order = new int[noOptions];
+		for (int i = 0; i < noOptions; i++) {
+			// Insertion sort, issues rarely have more than a few dozen options
+			int j = i;
+			while (j > 0 && issueContributions[order[j - 1]] < issueContributions[i]) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = i;
+		}
+		return order;
+	}
+
+	/**
+	 * Insertion sort of the options by their distance to the ideal
+	 * contribution.
+	 */
+	private static void sortByCloseness(int[] order, double[] issueContributions, double ideal) {
+		for (int i = 1; i < order.length; i++) {
+			int option = order[i];
+			double distance = Math.abs(issueContributions[option] - ideal);
+			int j = i;
+			while (j > 0 && Math.abs(issueContributions[order[j - 1]] - ideal) > distance) {
+				order[j] = order[j - 1];
+				j--;
+			}
+			order[j] = option;
+		}
+	}
+}
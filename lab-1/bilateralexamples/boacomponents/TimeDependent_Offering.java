@@ -11,7 +11,11 @@ import genius.core.boaframework.NoModel;
 import genius.core.boaframework.OMStrategy;
 import genius.core.boaframework.OfferingStrategy;
 import genius.core.boaframework.OpponentModel;
+import genius.core.boaframework.OutcomeSpace;
 import genius.core.boaframework.SortedOutcomeSpace;
+import genius.core.misc.Range;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
 
 /**
  * This is an abstract class used to implement a TimeDependentAgent Strategy
@@ -23,6 +27,14 @@ import genius.core.boaframework.SortedOutcomeSpace;
  */
 public class TimeDependent_Offering extends OfferingStrategy {
 
+	/**
+	 * Domains with more outcomes than this are searched lazily instead of
+	 * being enumerated and sorted
+	 */
+	public static final long LAZY_OUTCOME_THRESHOLD = 100000;
+	/** Width of the utility window the OM strategy first looks in */
+	private static final double WINDOW = 0.01;
+
 	/**
 	 * k in [0, 1]. For k = 0 the agent starts with a bid of maximum utility
 	 */
@@ -34,7 +46,7 @@ public class TimeDependent_Offering extends OfferingStrategy {
 	/** Concession factor */
 	private double e;
 	/** Outcome space */
-	private SortedOutcomeSpace outcomespace;
+	private OutcomeSpace outcomespace;
 
 	/**
 	 * Method which initializes the agent by setting all parameters. The
@@ -47,7 +59,12 @@ public class TimeDependent_Offering extends OfferingStrategy {
 		if (parameters.get("e") != null) {
 			this.negotiationSession = negoSession;
 
-			outcomespace = new SortedOutcomeSpace(negotiationSession.getUtilitySpace());
+			AbstractUtilitySpace utilitySpace = negotiationSession.getUtilitySpace();
+			if (utilitySpace.getDomain().getNumberOfPossibleBids() > LAZY_OUTCOME_THRESHOLD
+					&& utilitySpace instanceof AdditiveUtilitySpace)
+				outcomespace = new LazyOutcomeSpace((AdditiveUtilitySpace) utilitySpace);
+			else
+				outcomespace = new SortedOutcomeSpace(utilitySpace);
 			negotiationSession.setOutcomeSpace(outcomespace);
 
 			this.e = parameters.get("e");
@@ -101,8 +118,11 @@ public class TimeDependent_Offering extends OfferingStrategy {
 		// if there is no opponent model available
 		if (opponentModel instanceof NoModel) {
 			nextBid = negotiationSession.getOutcomeSpace().getBidNearUtility(utilityGoal);
+		} else if (outcomespace instanceof SortedOutcomeSpace) {
+			nextBid = omStrategy.getBid((SortedOutcomeSpace) outcomespace, utilityGoal);
 		} else {
-			nextBid = omStrategy.getBid(outcomespace, utilityGoal);
+			// The window a sorted outcome space gets, widened by the OM strategy until it holds bids
+			nextBid = omStrategy.getBid(outcomespace, new Range(utilityGoal, utilityGoal + WINDOW));
 		}
 		return nextBid;
 	}
@@ -2,7 +2,8 @@ package storageexample;
 
 import java.util.List;
 
-import java.util.HashMap;
+import java.io.File;
+import java.io.IOException;
 import java.util.Map;
 
 import genius.core.AgentID;
@@ -10,11 +11,9 @@ import genius.core.Bid;
 import genius.core.actions.Accept;
 import genius.core.actions.Action;
 import genius.core.actions.Offer;
-import genius.core.list.Tuple;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
 import genius.core.persistent.PersistentDataType;
-import genius.core.persistent.StandardInfo;
 import genius.core.persistent.StandardInfoList;
 
 /**
@@ -26,6 +25,8 @@ public class GroupX extends AbstractNegotiationParty {
 	private Bid lastReceivedBid = null;
 	private int nrChosenActions = 0; // number of times chosenAction was called.
 	private StandardInfoList history;
+	private SummaryStore summaryStore;
+	private File summaryFile;
 
 	@Override
 	public void init(NegotiationInfo info) {
@@ -40,19 +41,20 @@ public class GroupX extends AbstractNegotiationParty {
 		}
 		history = (StandardInfoList) getData().get();
 
-		if (!history.isEmpty()) {
-			// example of using the history. Compute for each party the maximum
-			// utility of the bids in last session.
-			Map<String, Double> maxutils = new HashMap<String, Double>();
-			StandardInfo lastinfo = history.get(history.size() - 1);
-			for (Tuple<String, Double> offered : lastinfo.getUtilities()) {
-				String party = offered.get1();
-				Double util = offered.get2();
-				maxutils.put(party, maxutils.containsKey(party) ? Math.max(maxutils.get(party), util) : util);
-			}
-			System.out.println(maxutils); // notice tournament suppresses all
-											// output.
+		// example of using the history. Keep a summary of every opponent over
+		// all sessions, folding in only the sessions since the last one.
+		String profile = getUtilitySpace().getFileName() == null ? "profile"
+				: new File(getUtilitySpace().getFileName()).getName();
+		summaryFile = new File("summaries", getClass().getSimpleName() + "-" + profile + ".summary");
+		try {
+			summaryStore = SummaryStore.load(summaryFile);
+		} catch (IOException e) {
+			e.printStackTrace();
+			summaryStore = new SummaryStore();
 		}
+		summaryStore.fold(history, getPartyId().toString());
+		System.out.println(summaryStore.getSummaries()); // notice tournament suppresses all
+															// output.
 	}
 
 	public Action chooseAction(List<Class<? extends Action>> validActions) {
@@ -72,6 +74,19 @@ public class GroupX extends AbstractNegotiationParty {
 		}
 	}
 
+	/**
+	 * Stores the summaries for the next session.
+	 */
+	@Override
+	public Map<String, String> negotiationEnded(Bid acceptedBid) {
+		try {
+			summaryStore.save(summaryFile);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		return super.negotiationEnded(acceptedBid);
+	}
+
 	public String getDescription() {
 		return "accept Nth offer";
 	}
@@ -0,0 +1,104 @@
+package storageexample;
+
+/**
+ * Aggregates of the negotiations with one opponent: how often sessions ended
+ * in agreement, and the maximum, mean and quantiles of the utilities of the
+ * bids offered. Quantiles come from a histogram of {@link #BINS} equal bins
+ * over [0, 1], so they are accurate to 1 / BINS and the summary takes constant
+ * space however many bids it has seen.
+ */
+public class OpponentSummary {
+
+	public static final int BINS = 100;
+
+	private int sessions = 0;
+	private int agreements = 0;
+	private long offers = 0;
+	private double maxUtility = 0;
+	private double sumUtility = 0;
+	private final int[] histogram = new int[BINS];
+
+	public void addSession(boolean agreement) {
+		sessions++;
+		if (agreement) {
+			agreements++;
+		}
+	}
+
+	public void addOffer(double utility) {
+		maxUtility = offers == 0 ? utility : Math.max(maxUtility, utility);
+		offers++;
+		sumUtility += utility;
+		histogram[toBin(utility)]++;
+	}
+
+	public int getSessions() {
+		return sessions;
+	}
+
+	public int getAgreements() {
+		return agreements;
+	}
+
+	public double getAgreementRate() {
+		return sessions == 0 ? 0 : agreements / (double) sessions;
+	}
+
+	public long getOffers() {
+		return offers;
+	}
+
+	public double getMaxUtility() {
+		return maxUtility;
+	}
+
+	public double getMeanUtility() {
+		return offers == 0 ? 0 : sumUtility / offers;
+	}
+
+	/**
+	 * @param q
+	 *            a fraction in [0, 1]
+	 * @return the upper edge of the bin holding the q-quantile of the offered
+	 *         utilities, at most the maximum
+	 */
+	public double getQuantile(double q) {
+		long rank = Math.max(1, (long) Math.ceil(q * offers));
+		long seen = 0;
+		for (int bin = 0; bin < BINS; bin++) {
+			seen += histogram[bin];
+			if (seen >= rank) {
+				return Math.min((bin + 1) / (double) BINS, maxUtility);
+			}
+		}
+		return maxUtility;
+	}
+
+	@Override
+	public String toString() {
+		return "sessions: " + sessions + " agreement rate: " + getAgreementRate() + " offers: " + offers
+				+ " max: " + maxUtility + " mean: " + getMeanUtility() + " median: " + getQuantile(0.5);
+	}
+
+	private static int toBin(double utility) {
+		return Math.max(0, Math.min(BINS - 1, (int) (utility * BINS)));
+	}
+
+	// Raw state, for storing the summary
+
+	double getSumUtility() {
+		return sumUtility;
+	}
+
+	int[] getHistogram() {
+		return histogram;
+	}
+
+	void restore(int sessions, int agreements, long offers, double maxUtility, double sumUtility) {
+		this.sessions = sessions;
+		this.agreements = agreements;
+		this.offers = offers;
+		this.maxUtility = maxUtility;
+		this.sumUtility = sumUtility;
+	}
+}
@@ -0,0 +1,216 @@
+package storageexample;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.AtomicMoveNotSupportedException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+
+import genius.core.Bid;
+import genius.core.list.Tuple;
+import genius.core.persistent.StandardInfo;
+import genius.core.persistent.StandardInfoList;
+
+/**
+ * Per opponent summaries of the sessions in a {@link StandardInfoList}.
+ * The store remembers how many sessions of the list it has folded in, so each
+ * session is only replayed once, and is mirrored to a file of fixed size
+ * records between sessions. Loading the store then costs O(opponents) instead
+ * of O(history). The file is read into memory and replaced as a whole when
+ * saved, so it is never mapped while it changes, and parties that save the
+ * same file at once each leave a complete store.
+ * Opponents are identified by their party name without the "@" suffix that
+ * numbers them within a tournament. The store also keeps a fingerprint of the
+ * first session of the history it summarises, so a file left over from another
+ * tournament is recognised and started over.
+ */
+public class SummaryStore {
+
+	private static final int MAGIC = 0x53554d32;
+	private static final int HEADER_BYTES = 20;
+	private static final int NAME_BYTES = 62;
+	private static final int RECORD_BYTES = 2 + NAME_BYTES + 4 + 4 + 8 + 8 + 8 + 4 * OpponentSummary.BINS;
+
+	private final Map<String, OpponentSummary> summaries = new LinkedHashMap<String, OpponentSummary>();
+	private int foldedSessions = 0;
+	private long historyFingerprint = 0;
+
+	/**
+	 * Fold in the sessions of the history that are not yet summarised. If the
+	 * history is shorter than what was folded before, or starts with another
+	 * session, it belongs to another tournament and the summaries start over.
+	 *
+	 * @param history
+	 *            the standard persistent data of this agent and profile
+	 * @param ownName
+	 *            the party name of this agent, whose own bids are skipped
+	 */
+	public void fold(StandardInfoList history, String ownName) {
+		long fingerprint = history.isEmpty() ? 0 : fingerprint(history.get(0));
+		if (history.size() < foldedSessions || (foldedSessions > 0 && fingerprint != historyFingerprint)) {
+			summaries.clear();
+			foldedSessions = 0;
+		}
+		historyFingerprint = fingerprint;
+
+		String own = toKey(ownName);
+		for (int i = foldedSessions; i < history.size(); i++) {
+			StandardInfo info = history.get(i);
+			Tuple<Bid, Double> agreement = info.getAgreement();
+			boolean agreed = agreement != null && agreement.get1() != null;
+			for (String party : info.getAgentProfiles().keySet()) {
+				String key = toKey(party);
+				if (!key.equals(own)) {
+					get(key).addSession(agreed);
+				}
+			}
+			for (Tuple<String, Double> offered : info.getUtilities()) {
+				String key = toKey(offered.get1());
+				if (!key.equals(own)) {
+					get(key).addOffer(offered.get2());
+				}
+			}
+		}
+		foldedSessions = history.size();
+	}
+
+	public Map<String, OpponentSummary> getSummaries() {
+		return summaries;
+	}
+
+	public int getFoldedSessions() {
+		return foldedSessions;
+	}
+
+	/**
+	 * Loads a store saved before, or returns an empty store if there is no
+	 * file or it is not a valid summary file.
+	 */
+	public static SummaryStore load(File file) throws IOException {
+		SummaryStore store = new SummaryStore();
+		if (!file.isFile() || file.length() < HEADER_BYTES) {
+			return store;
+		}
+
+		ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+		if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+			return store;
+		}
+		int folded = buffer.getInt();
+		int noOpponents = buffer.getInt();
+		long fingerprint = buffer.getLong();
+		if (folded < 0 || noOpponents < 0 || buffer.remaining() < (long) noOpponents * RECORD_BYTES) {
+			return store;
+		}
+
+		for (int i = 0; i < noOpponents; i++) {
+			byte[] name = new byte[NAME_BYTES];
+			int nameLength = buffer.getShort();
+			if (nameLength < 0 || nameLength > NAME_BYTES) {
+				// A corrupt record, the whole file is not to be trusted
+				return new SummaryStore();
+			}
+			buffer.get(name);
+			OpponentSummary summary = store.get(new String(name, 0, nameLength, StandardCharsets.UTF_8));
+			summary.restore(buffer.getInt(), buffer.getInt(), buffer.getLong(), buffer.getDouble(),
+					buffer.getDouble());
+			int[] histogram = summary.getHistogram();
+			for (int bin = 0; bin < histogram.length; bin++) {
+				histogram[bin] = buffer.getInt();
+			}
+		}
+		store.foldedSessions = folded;
+		store.historyFingerprint = fingerprint;
+		return store;
+	}
+
+	/**
+	 * Writes the store to a temporary file next to the file, sized to the
+	 * current number of opponents, and moves it into place.
+	 */
+	public void save(File file) throws IOException {
+		File directory = file.getAbsoluteFile().getParentFile();
+		if (directory != null) {
+			directory.mkdirs();
+		}
+
+		int size = HEADER_BYTES + RECORD_BYTES * summaries.size();
+		ByteBuffer buffer = ByteBuffer.allocate(size);
+		buffer.putInt(MAGIC).putInt(foldedSessions).putInt(summaries.size()).putLong(historyFingerprint);
+		for (Map.Entry<String, OpponentSummary> entry : summaries.entrySet()) {
+			// Names longer than a record allows are cut off
+			byte[] name = entry.getKey().getBytes(StandardCharsets.UTF_8);
+			buffer.putShort((short) Math.min(NAME_BYTES, name.length)).put(Arrays.copyOf(name, NAME_BYTES));
+
+			OpponentSummary summary = entry.getValue();
+			buffer.putInt(summary.getSessions()).putInt(summary.getAgreements()).putLong(summary.getOffers())
+					.putDouble(summary.getMaxUtility()).putDouble(summary.getSumUtility());
+			for (int count : summary.getHistogram()) {
+				buffer.putInt(count);
+			}
+		}
+		buffer.flip();
+
+		// Written aside and moved into place, so a party loading or saving the file at the same time sees a whole store
+		File temporary = File.createTempFile(file.getName(), ".tmp", directory);
+		try {
+			try (FileChannel channel = FileChannel.open(temporary.toPath(), StandardOpenOption.WRITE)) {
+				while (buffer.hasRemaining()) {
+					channel.write(buffer);
+				}
+				channel.force(true);
+			}
+			try {
+				Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.ATOMIC_MOVE,
+						StandardCopyOption.REPLACE_EXISTING);
+			} catch (AtomicMoveNotSupportedException e) {
+				Files.move(temporary.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+			}
+		} finally {
+			temporary.delete();
+		}
+	}
+
+	private OpponentSummary get(String key) {
+		OpponentSummary summary = summaries.get(key);
+		if (summary == null) {
+			summary = new OpponentSummary();
+			summaries.put(key, summary);
+		}
+		return summary;
+	}
+
+	/**
+	 * A hash of the parties, profiles, offers and agreement of a session, which
+	 * tell the first sessions of two tournaments apart.
+	 */
+	private static long fingerprint(StandardInfo info) {
+		long hash = 17;
+		for (Map.Entry<String, String> profile : new TreeMap<String, String>(info.getAgentProfiles()).entrySet()) {
+			hash = 31 * hash + profile.getKey().hashCode();
+			hash = 31 * hash + String.valueOf(profile.getValue()).hashCode();
+		}
+		for (Tuple<String, Double> offered : info.getUtilities()) {
+			hash = 31 * hash + offered.get1().hashCode();
+			hash = 31 * hash + Double.hashCode(offered.get2());
+		}
+		Tuple<Bid, Double> agreement = info.getAgreement();
+		if (agreement != null && agreement.get1() != null) {
+			hash = 31 * hash + Double.hashCode(agreement.get2());
+		}
+		return hash;
+	}
+
+	private static String toKey(String party) {
+		int at = party.indexOf('@');
+		return at < 0 ? party : party.substring(0, at);
+	}
+}
@@ -0,0 +1,106 @@
+package group8.bench;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OperationsPerInvocation;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+
+import genius.core.Bid;
+import genius.core.utility.AdditiveUtilitySpace;
+import group8.BidCodec;
+import group8.UtilityKernel;
+
+/**
+ * Throughput of evaluating the own utility of random bids, through the generic
+ * {@link AdditiveUtilitySpace#getUtility(Bid)} against the {@link UtilityKernel} on the same bids as
+ * Bid objects, option ordinals and codes. Every invocation evaluates all bids, so the scores are in
+ * evaluations per second.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class UtilityKernelBenchmark
+{
+	private static final long SEED = 42;
+	private static final int BIDS = 1000;
+
+	@Param({ "36", "10000", "100000", "1000000", "4194304" })
+	public String domainSize;
+
+	private AdditiveUtilitySpace utilitySpace;
+	private UtilityKernel utilityKernel;
+	private Bid[] bids;
+	private int[][] ordinals;
+	private long[] codes;
+	private int noWords;
+
+	@Setup(Level.Trial)
+	public void setUp() throws Exception
+	{
+		BenchmarkDomain domain = BenchmarkDomain.generate(domainSize, SEED);
+		utilitySpace = domain.getOwnSpace();
+		BidCodec codec = new BidCodec(domain.getDomain());
+		utilityKernel = new UtilityKernel(utilitySpace, codec);
+
+		List<Bid> randomBids = domain.getRandomBids(BIDS, SEED);
+		bids = randomBids.toArray(new Bid[BIDS]);
+		noWords = codec.getNumberOfWords();
+		ordinals = new int[BIDS][codec.getNumberOfIssues()];
+		codes = new long[BIDS * noWords];
+		for (int i = 0; i < BIDS; i++)
+		{
+			for (int slot = 0; slot < codec.getNumberOfIssues(); slot++)
+				ordinals[i][slot] = codec.getOrdinal(bids[i], slot);
+			codec.encode(bids[i], codes, i * noWords);
+		}
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BIDS)
+	public double utilitySpace()
+	{
+		double total = 0;
+		for (Bid bid : bids)
+			total += utilitySpace.getUtility(bid);
+		return total;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BIDS)
+	public double kernelOfBids()
+	{
+		double total = 0;
+		for (Bid bid : bids)
+			total += utilityKernel.getUtility(bid);
+		return total;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BIDS)
+	public double kernelOfOrdinals()
+	{
+		double total = 0;
+		for (int[] bidOrdinals : ordinals)
+			total += utilityKernel.getUtility(bidOrdinals);
+		return total;
+	}
+
+	@Benchmark
+	@OperationsPerInvocation(BIDS)
+	public double kernelOfCodes()
+	{
+		double total = 0;
+		for (int i = 0; i < BIDS; i++)
+			total += utilityKernel.getUtility(codes, i * noWords);
+		return total;
+	}
+}
@@ -0,0 +1,84 @@
+package group8;
+
+import genius.core.Bid;
+import genius.core.issue.IssueDiscrete;
+
+/**
+ * Finds extreme bids of an additive utility space over discrete issues.
+ * The utility of an additive space is a sum of per issue contributions, read from its
+ * {@link UtilityKernel}, so the maximum and
+ * minimum utility bids are built by picking the best or worst option of every issue.
+ * They are computed once and cached.
+ * Issues are indexed by slot in domain order, and options by their ordinal in {@link IssueDiscrete#getValues()}.
+ */
+public class ExtremeBidSolver
+{
+	private final UtilityKernel utilityKernel;
+	private final BidCodec codec;
+	private final int[] maxOrdinals;
+	private final int[] minOrdinals;
+
+	private final Bid maxUtilityBid;
+	private final Bid minUtilityBid;
+	private final double maxUtility;
+	private final double minUtility;
+
+	/**
+	 * Solves the unconstrained extremes of the utility space.
+	 * @param utilityKernel The compiled additive utility space
+	 */
+	public ExtremeBidSolver(UtilityKernel utilityKernel)
+	{
+		this.utilityKernel = utilityKernel;
+		codec = utilityKernel.getCodec();
+		int noIssues = codec.getNumberOfIssues();
+		maxOrdinals = new int[noIssues];
+		minOrdinals = new int[noIssues];
+
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			for (int ordinal = 0; ordinal < codec.getNumberOfValues(slot); ordinal++)
+			{
+				double contribution = utilityKernel.getContribution(slot, ordinal);
+				if (contribution > utilityKernel.getContribution(slot, maxOrdinals[slot]))
+					maxOrdinals[slot] = ordinal;
+				if (contribution < utilityKernel.getContribution(slot, minOrdinals[slot]))
+					minOrdinals[slot] = ordinal;
+			}
+		}
+
+		maxUtilityBid = toBid(maxOrdinals);
+		minUtilityBid = toBid(minOrdinals);
+		maxUtility = utilityKernel.getUtility(maxOrdinals);
+		minUtility = utilityKernel.getUtility(minOrdinals);
+	}
+
+	public Bid getMaxUtilityBid()
+	{
+		return maxUtilityBid;
+	}
+
+	public Bid getMinUtilityBid()
+	{
+		return minUtilityBid;
+	}
+
+	public double getMaxUtility()
+	{
+		return maxUtility;
+	}
+
+	public double getMinUtility()
+	{
+		return minUtility;
+	}
+
+	/**
+	 * @param ordinals The ordinal of the chosen option of every issue, indexed by slot
+	 * @return The bid choosing those options
+	 */
+	Bid toBid(int[] ordinals)
+	{
+		return codec.toBid(ordinals);
+	}
+}
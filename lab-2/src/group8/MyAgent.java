@@ -1,6 +1,7 @@
 package group8;
 
 import java.util.List;
+import java.util.Map;
 
 import genius.core.AgentID;
 import genius.core.Bid;
@@ -26,7 +27,16 @@ public class MyAgent extends AbstractNegotiationParty
 {
 	private double MINIMUM_TARGET;
 	private Bid lastOffer;
+	/** The option ordinals of the last offer, by slot */
+	private int[] lastOfferOrdinals;
+	private double lastOfferUtility;
 	private double concedeThreshold;
+	private BidCodec bidCodec;
+	private UtilityKernel utilityKernel;
+	private OutcomeIndex outcomeIndex;
+	private ExtremeBidSolver extremeBidSolver;
+	private TurnLatency turnLatency;
+	private AgentLogger log;
 
 	/**
 	 * Initializes a new instance of the agent.
@@ -35,34 +45,24 @@ public class MyAgent extends AbstractNegotiationParty
 	public void init(NegotiationInfo info) 
 	{
 		super.init(info);
+		log = new AgentLogger(getClass().getSimpleName() + "-" + info.getAgentID());
 		AbstractUtilitySpace utilitySpace = info.getUtilitySpace();
 		AdditiveUtilitySpace additiveUtilitySpace = (AdditiveUtilitySpace) utilitySpace;
 
-		List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
+		if (log.isEnabled(AgentLogger.Level.DEBUG))
+			logUtilitySpace(additiveUtilitySpace);
 
-		for (Issue issue : issues) {
-			int issueNumber = issue.getNumber();
-			System.out.println(">> " + issue.getName() + " weight: " + additiveUtilitySpace.getWeight(issueNumber));
-
-			// Assuming that issues are discrete only
-			IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-			EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issueNumber);
-
-			for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
-				System.out.println(valueDiscrete.getValue());
-				System.out.println("Evaluation(getValue): " + evaluatorDiscrete.getValue(valueDiscrete));
-				try {
-					System.out.println("Evaluation(getEvaluation): " + evaluatorDiscrete.getEvaluation(valueDiscrete));
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
-			}
-		}
-
-		Double minUtility = getUtility(getMinUtilityBid());
-		Double maxUtility = getUtility(getMaxUtilityBid());
+		bidCodec = new BidCodec(utilitySpace.getDomain());
+		utilityKernel = new UtilityKernel(additiveUtilitySpace, bidCodec);
+		extremeBidSolver = new ExtremeBidSolver(utilityKernel);
+		double minUtility = extremeBidSolver.getMinUtility();
+		double maxUtility = extremeBidSolver.getMaxUtility();
 		concedeThreshold = (maxUtility + minUtility) / 2;
 		MINIMUM_TARGET = maxUtility;
+
+		outcomeIndex = new OutcomeIndex(utilitySpace, bidCodec, utilityKernel, rand);
+		lastOfferOrdinals = new int[bidCodec.getNumberOfIssues()];
+		turnLatency = new TurnLatency();
 	}
 
 	/**
@@ -72,66 +72,51 @@ public class MyAgent extends AbstractNegotiationParty
 	@Override
 	public Action chooseAction(List<Class<? extends Action>> possibleActions) 
 	{
-		// Check for acceptance if we have received an offer
-		if (lastOffer != null)
+		turnLatency.startTurn();
+		try
 		{
-			double timeDependentThreshold = concedeThreshold + ((1 - timeline.getTime()) * (getUtility(getMaxUtilityBid()) - concedeThreshold));
-			System.out.println("Current time Threshold: " + timeDependentThreshold);
-			MINIMUM_TARGET = Math.max(timeDependentThreshold, concedeThreshold);
-			System.out.println("MINIMUM_TARGET: " + MINIMUM_TARGET);
-			System.out.println("Concede Threshold: " + concedeThreshold);
-			System.out.println();
-			if (timeline.getTime() >= 0.99)
+			// Check for acceptance if we have received an offer
+			if (lastOffer != null)
 			{
-				if (getUtility(lastOffer) >= concedeThreshold)
+				double timeDependentThreshold = concedeThreshold + ((1 - timeline.getTime()) * (extremeBidSolver.getMaxUtility() - concedeThreshold));
+				log.debug(() -> "Current time Threshold: " + timeDependentThreshold);
+				MINIMUM_TARGET = Math.max(timeDependentThreshold, concedeThreshold);
+				log.debug(() -> "MINIMUM_TARGET: " + MINIMUM_TARGET);
+				log.debug(() -> "Concede Threshold: " + concedeThreshold);
+				if (timeline.getTime() >= 0.99)
+				{
+					if (lastOfferUtility >= concedeThreshold)
+						return new Accept(getPartyId(), lastOffer);
+					else
+						return new EndNegotiation(getPartyId());
+				}
+				else if (lastOfferUtility >= MINIMUM_TARGET)
+				{
 					return new Accept(getPartyId(), lastOffer);
-				else
-					return new EndNegotiation(getPartyId());
-			}
-			else if (getUtility(lastOffer) >= MINIMUM_TARGET)
-			{
-				return new Accept(getPartyId(), lastOffer);
+				}
 			}
+			// Otherwise, send out a random offer above the target utility 
+			return new Offer(getPartyId(), outcomeIndex.getBid(generateRandomBidAboveTarget()));
 		}
-		// Otherwise, send out a random offer above the target utility 
-		return new Offer(getPartyId(), generateRandomBidAboveTarget());
-	}
-
-	private Bid getMaxUtilityBid() {
-		try {
-			return utilitySpace.getMaxUtilityBid();
-		} catch (Exception e) {
-			e.printStackTrace();
-		}
-		return null;
-	}
-
-	private Bid getMinUtilityBid() {
-		try {
-			return utilitySpace.getMinUtilityBid();
-		} catch (Exception e) {
-			e.printStackTrace();
+		finally
+		{
+			long latency = turnLatency.endTurn();
+			if (turnLatency.isOverSlo(latency))
+				log.warn(() -> "Turn took " + latency / 1e6 + " ms");
 		}
-		return null;
 	}
 
-	private Bid generateRandomBidAboveTarget() 
+	/**
+	 * Draws uniformly from the bids above the target utility using the sorted outcome index
+	 * @return The index of a random bid above the target
+	 */
+	private int generateRandomBidAboveTarget() 
 	{
-		Bid randomBid;
-		double util;
-		int i = 0;
-		// try 100 times to find a bid under the target utility
-		do 
-		{
-			randomBid = generateRandomBid();
-			util = utilitySpace.getUtility(randomBid);
-		} 
-		while (util < MINIMUM_TARGET && i++ < 100);		
-		return randomBid;
+		return outcomeIndex.getRandomIndexAbove(MINIMUM_TARGET, rand);
 	}
 
 	/**
-	 * Remembers the offers received by the opponent.
+	 * Remembers the offers received by the opponent, and our utility of them.
 	 */
 	@Override
 	public void receiveMessage(AgentID sender, Action action) 
@@ -139,6 +124,47 @@ public class MyAgent extends AbstractNegotiationParty
 		if (action instanceof Offer) 
 		{
 			lastOffer = ((Offer) action).getBid();
+			for (int slot = 0; slot < lastOfferOrdinals.length; slot++)
+				lastOfferOrdinals[slot] = bidCodec.getOrdinal(lastOffer, slot);
+			lastOfferUtility = utilityKernel.getUtility(lastOfferOrdinals);
+		}
+	}
+
+	/**
+	 * Reports the turn latencies of this session and flushes its diagnostics.
+	 */
+	@Override
+	public Map<String, String> negotiationEnded(Bid acceptedBid)
+	{
+		log.info(turnLatency::toString);
+		log.close();
+		return super.negotiationEnded(acceptedBid);
+	}
+
+	/**
+	 * Logs the weight of every issue and the evaluation of every option of our utility space
+	 */
+	private void logUtilitySpace(AdditiveUtilitySpace additiveUtilitySpace)
+	{
+		for (Issue issue : additiveUtilitySpace.getDomain().getIssues()) {
+			int issueNumber = issue.getNumber();
+			log.debug(() -> ">> " + issue.getName() + " weight: " + additiveUtilitySpace.getWeight(issueNumber));
+
+			// Assuming that issues are discrete only
+			IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
+			EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issueNumber);
+
+			for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
+				log.debug(valueDiscrete::getValue);
+				log.debug(() -> "Evaluation(getValue): " + evaluatorDiscrete.getValue(valueDiscrete));
+				try
+				{
+					Double evaluation = evaluatorDiscrete.getEvaluation(valueDiscrete);
+					log.debug(() -> "Evaluation(getEvaluation): " + evaluation);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
 		}
 	}
 
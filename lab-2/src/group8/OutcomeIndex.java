@@ -0,0 +1,218 @@
+package group8;
+
+import java.util.Arrays;
+import java.util.Random;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.utility.AbstractUtilitySpace;
+import genius.core.utility.AdditiveUtilitySpace;
+
+/**
+ * The bids of a domain sorted by our own utility, so that a bid above a target
+ * can be drawn directly instead of by rejection sampling.
+ * Domains with more than {@link #MAX_OUTCOMES} bids are represented by a random sample
+ * that always contains the maximum utility bid.
+ * Bids are stored as their {@link BidCodec} codes, and only decoded when they are read back.
+ * The utilities of an additive utility space are computed from the codes by a {@link UtilityKernel}.
+ */
+public class OutcomeIndex
+{
+	public static final int MAX_OUTCOMES = 50000;
+
+	private final BidCodec codec;
+	private final int noWords;
+	private final long[] codes;
+	private final double[] utilities;
+	private int cursor;
+
+	/**
+	 * Builds the index for a utility space over a discrete domain.
+	 * @param utilitySpace The utility space used to sort the bids
+	 * @param rand The random generator used when the domain has to be sampled
+	 */
+	public OutcomeIndex(AbstractUtilitySpace utilitySpace, Random rand)
+	{
+		this(utilitySpace, new BidCodec(utilitySpace.getDomain()), rand);
+	}
+
+	/**
+	 * Builds the index for a utility space over a discrete domain.
+	 * @param utilitySpace The utility space used to sort the bids
+	 * @param codec The codec of the domain
+	 * @param rand The random generator used when the domain has to be sampled
+	 */
+	public OutcomeIndex(AbstractUtilitySpace utilitySpace, BidCodec codec, Random rand)
+	{
+		this(utilitySpace, codec, utilitySpace instanceof AdditiveUtilitySpace
+				? new UtilityKernel((AdditiveUtilitySpace) utilitySpace, codec) : null, rand);
+	}
+
+	/**
+	 * Builds the index for a utility space over a discrete domain.
+	 * @param utilitySpace The utility space used to sort the bids
+	 * @param codec The codec of the domain
+	 * @param utilityKernel The compiled utility space, or null to evaluate the utility space on decoded bids
+	 * @param rand The random generator used when the domain has to be sampled
+	 */
+	public OutcomeIndex(AbstractUtilitySpace utilitySpace, BidCodec codec, UtilityKernel utilityKernel, Random rand)
+	{
+		this.codec = codec;
+		noWords = codec.getNumberOfWords();
+		Domain domain = utilitySpace.getDomain();
+		long[] outcomes;
+		if (domain.getNumberOfPossibleBids() <= MAX_OUTCOMES)
+			outcomes = enumerateCodes(domain.getNumberOfPossibleBids());
+		else
+			outcomes = sampleCodes(utilitySpace, codec, rand);
+
+		int size = outcomes.length / noWords;
+		double[] outcomeUtilities = new double[size];
+		Integer[] order = new Integer[size];
+		for (int i = 0; i < size; i++)
+		{
+			if (utilityKernel != null)
+				outcomeUtilities[i] = utilityKernel.getUtility(outcomes, i * noWords);
+			else
+				outcomeUtilities[i] = utilitySpace.getUtility(codec.decode(outcomes, i * noWords));
+			order[i] = i;
+		}
+		Arrays.sort(order, (a, b) -> Double.compare(outcomeUtilities[a], outcomeUtilities[b]));
+
+		codes = new long[outcomes.length];
+		utilities = new double[size];
+		for (int i = 0; i < size; i++)
+		{
+			System.arraycopy(outcomes, order[i] * noWords, codes, i * noWords, noWords);
+			utilities[i] = outcomeUtilities[order[i]];
+		}
+		cursor = size - 1;
+	}
+
+	/**
+	 * Draw a bid uniformly from all indexed bids with a utility of at least the target.
+	 * If the target is above every indexed bid, the best bid is returned.
+	 * @param target The minimum utility of the bid
+	 * @param rand The random generator to draw with
+	 * @return A bid above the target
+	 */
+	public Bid getRandomBidAbove(double target, Random rand)
+	{
+		return getBid(getRandomIndexAbove(target, rand));
+	}
+
+	/**
+	 * Draw an index uniformly from all indexed bids with a utility of at least the target.
+	 * If the target is above every indexed bid, the index of the best bid is returned.
+	 * @param target The minimum utility of the bid
+	 * @param rand The random generator to draw with
+	 * @return The index of a bid above the target
+	 */
+	public int getRandomIndexAbove(double target, Random rand)
+	{
+		int first = indexOfFirstAbove(target);
+		if (first == size())
+			return size() - 1;
+
+		return first + rand.nextInt(size() - first);
+	}
+
+	/**
+	 * Finds the lowest index with a utility of at least the target.
+	 * The threshold usually only falls during a negotiation, so the search gallops
+	 * down from the previous position instead of searching the whole index.
+	 * @param target The minimum utility
+	 * @return The index, or the number of indexed bids if no bid reaches the target
+	 */
+	public int indexOfFirstAbove(double target)
+	{
+		int low;
+		int high;
+		if (utilities[cursor] >= target)
+		{
+			// The answer is at or below the cursor
+			high = cursor;
+			int step = 1;
+			low = high - step;
+			while (low >= 0 && utilities[low] >= target)
+			{
+				high = low;
+				step <<= 1;
+				low = high - step;
+			}
+			low = Math.max(low + 1, 0);
+		}
+		else
+		{
+			low = cursor + 1;
+			high = size();
+		}
+
+		// Binary search for the first index in [low, high] with a utility of at least the target
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (utilities[mid] >= target)
+				high = mid;
+			else
+				low = mid + 1;
+		}
+
+		cursor = Math.min(low, size() - 1);
+		return low;
+	}
+
+	public Bid getBid(int index)
+	{
+		return codec.decode(codes, index * noWords);
+	}
+
+	/**
+	 * @return The ordinal of the option the indexed bid chooses for the issue in the slot, without decoding the bid
+	 */
+	public int getOrdinal(int index, int slot)
+	{
+		return codec.getOrdinal(codes, index * noWords, slot);
+	}
+
+	public double getUtility(int index)
+	{
+		return utilities[index];
+	}
+
+	public int size()
+	{
+		return utilities.length;
+	}
+
+	/**
+	 * The codes of a domain of at most 2^63 outcomes are exactly 0 up to the number of outcomes,
+	 * so the outcome space is enumerated without building a bid.
+	 */
+	private static long[] enumerateCodes(long noOutcomes)
+	{
+		long[] outcomes = new long[(int) noOutcomes];
+		for (int i = 0; i < outcomes.length; i++)
+			outcomes[i] = i;
+		return outcomes;
+	}
+
+	private static long[] sampleCodes(AbstractUtilitySpace utilitySpace, BidCodec codec, Random rand)
+	{
+		int noWords = codec.getNumberOfWords();
+		long[] outcomes = new long[MAX_OUTCOMES * noWords];
+		int size = 0;
+		try
+		{
+			codec.encode(utilitySpace.getMaxUtilityBid(), outcomes, 0);
+			size++;
+		} catch (Exception e) {
+			e.printStackTrace();
+		}
+
+		while (size < MAX_OUTCOMES)
+			codec.encode(utilitySpace.getDomain().getRandomBid(rand), outcomes, noWords * size++);
+
+		return outcomes;
+	}
+}
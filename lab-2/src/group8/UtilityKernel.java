@@ -0,0 +1,162 @@
+package group8;
+
+import java.util.List;
+
+import genius.core.Bid;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.ValueDiscrete;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * An additive utility space compiled into one array, for loops that evaluate many bids.
+ * {@link AdditiveUtilitySpace#getUtility(Bid)} looks up the evaluator and the evaluation of every issue
+ * in maps; here the contribution of every option, its weight times its normalised evaluation, is
+ * computed once and stored issue after issue, so the utility of a bid given by its option ordinals
+ * is a sum of one array element per issue. The utilities are those of the utility space, up to the
+ * rounding of summing in slot order. Discount and reservation value follow
+ * {@link genius.core.utility.AbstractUtilitySpace}: the utility is discounted by the discount factor
+ * to the power of the normalised time, unless the factor is not in (0, 1).
+ * The agents compare undiscounted utilities on purpose: at a given time the discount scales an offer
+ * and the reservation value alike, so accepting, breaking off and meeting a target come out the same.
+ */
+public class UtilityKernel
+{
+	private final BidCodec codec;
+	/** Contributions of all options, issue after issue */
+	private final double[] contributions;
+	/** Index in the contributions of the first option of the issue in each slot */
+	private final int[] offsets;
+	private final double discountFactor;
+	private final double reservationValue;
+
+	/**
+	 * @param utilitySpace An additive utility space over discrete issues
+	 * @param codec The codec of the domain of the utility space
+	 */
+	public UtilityKernel(AdditiveUtilitySpace utilitySpace, BidCodec codec)
+	{
+		this.codec = codec;
+		int noIssues = codec.getNumberOfIssues();
+		offsets = new int[noIssues];
+		int noOptions = 0;
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			offsets[slot] = noOptions;
+			noOptions += codec.getNumberOfValues(slot);
+		}
+
+		contributions = new double[noOptions];
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			IssueDiscrete issue = codec.getIssue(slot);
+			double weight = utilitySpace.getWeight(issue.getNumber());
+			EvaluatorDiscrete evaluator = (EvaluatorDiscrete) utilitySpace.getEvaluator(issue.getNumber());
+			List<ValueDiscrete> values = issue.getValues();
+			for (int ordinal = 0; ordinal < values.size(); ordinal++)
+			{
+				try
+				{
+					contributions[offsets[slot] + ordinal] = weight * evaluator.getEvaluation(values.get(ordinal));
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
+		}
+
+		discountFactor = utilitySpace.getDiscountFactor();
+		Double reservation = utilitySpace.getReservationValueUndiscounted();
+		reservationValue = reservation == null ? 0 : reservation;
+	}
+
+	public BidCodec getCodec()
+	{
+		return codec;
+	}
+
+	/**
+	 * @return The weighted evaluation of the option with the ordinal of the issue in the slot
+	 */
+	public double getContribution(int slot, int ordinal)
+	{
+		return contributions[offsets[slot] + ordinal];
+	}
+
+	/**
+	 * @param ordinals The option ordinals of a bid, by slot
+	 * @return The undiscounted utility of the bid
+	 */
+	public double getUtility(int[] ordinals)
+	{
+		double utility = 0;
+		for (int slot = 0; slot < offsets.length; slot++)
+			utility += contributions[offsets[slot] + ordinals[slot]];
+		return utility;
+	}
+
+	/**
+	 * @return The undiscounted utility of the bid coded in the array from the offset on
+	 */
+	public double getUtility(long[] codes, int offset)
+	{
+		double utility = 0;
+		for (int slot = 0; slot < offsets.length; slot++)
+			utility += contributions[offsets[slot] + codec.getOrdinal(codes, offset, slot)];
+		return utility;
+	}
+
+	/**
+	 * @return The undiscounted utility of the bid
+	 */
+	public double getUtility(Bid bid)
+	{
+		double utility = 0;
+		for (int slot = 0; slot < offsets.length; slot++)
+			utility += contributions[offsets[slot] + codec.getOrdinal(bid, slot)];
+		return utility;
+	}
+
+	/**
+	 * @param time The normalised time
+	 * @return The utility of the bid, discounted to the time
+	 */
+	public double getUtilityWithDiscount(Bid bid, double time)
+	{
+		return discount(getUtility(bid), time);
+	}
+
+	/**
+	 * @param time The normalised time
+	 * @return The utility of the bid with the ordinals, discounted to the time
+	 */
+	public double getUtilityWithDiscount(int[] ordinals, double time)
+	{
+		return discount(getUtility(ordinals), time);
+	}
+
+	public double getReservationValue()
+	{
+		return reservationValue;
+	}
+
+	/**
+	 * @param time The normalised time
+	 * @return The reservation value, discounted to the time
+	 */
+	public double getReservationValueWithDiscount(double time)
+	{
+		return reservationValue == 0 ? 0 : discount(reservationValue, time);
+	}
+
+	/**
+	 * @param utility An undiscounted utility
+	 * @param time The normalised time, clamped to [0, 1]
+	 * @return The utility discounted to the time
+	 */
+	public double discount(double utility, double time)
+	{
+		if (discountFactor <= 0 || discountFactor >= 1)
+			return utility;
+		return utility * Math.pow(discountFactor, Math.max(0, Math.min(1, time)));
+	}
+}
@@ -0,0 +1,31 @@
+package group8.bench;
+
+import org.openjdk.jmh.profile.GCProfiler;
+import org.openjdk.jmh.results.format.ResultFormatType;
+import org.openjdk.jmh.runner.Runner;
+import org.openjdk.jmh.runner.RunnerException;
+import org.openjdk.jmh.runner.options.OptionsBuilder;
+
+/**
+ * Runs the benchmarks of this package with the GC profiler, so every result has the throughput and
+ * the allocation rate per agent, domain size and call. The results are also written
+ * to bench-results.csv for comparison between runs.
+ * The benchmarks are compiled with jmh-core and jmh-generator-annprocess on the class path, next to
+ * genius and the sources of lab-3:
+ * java -cp genius-9.1.11.jar:jmh-core.jar:&lt;classes&gt; group8.bench.BenchmarkRunner [regex]
+ * The optional regex selects benchmarks, such as "JohnyBlackBenchmark.chooseAction".
+ */
+public class BenchmarkRunner
+{
+	public static void main(String[] args) throws RunnerException
+	{
+		String include = args.length > 0 ? args[0] : BenchmarkRunner.class.getPackage().getName() + ".*";
+		new Runner(new OptionsBuilder()
+				.include(include)
+				.addProfiler(GCProfiler.class)
+				.forks(1)
+				.resultFormat(ResultFormatType.CSV)
+				.result("bench-results.csv")
+				.build()).run();
+	}
+}
@@ -0,0 +1,102 @@
+package group8.bench;
+
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import genius.core.AgentID;
+import genius.core.Bid;
+import genius.core.actions.Accept;
+import genius.core.actions.Action;
+import genius.core.actions.EndNegotiation;
+import genius.core.actions.Offer;
+import genius.core.utility.AbstractUtilitySpace;
+import group8.JohnyBlack;
+
+/**
+ * Throughput of the turn of {@link JohnyBlack}, halfway through a session.
+ * The agent is set up again for every iteration, since its opponent model learns from every bid
+ * it receives, and ends its negotiation after it, which stops its worker and logger threads.
+ * The agent runs with and without precomputing its offers on the worker. A turn receives the next
+ * opponent offer before choosing the action, since the timeline stands still and the same offer
+ * would be answered by the same snapshot. With the worker, receiving a message only hands the
+ * search to it, and the turn measures the wait for its snapshot.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+public class JohnyBlackBenchmark
+{
+	private static final long SEED = 42;
+	private static final int OPPONENT_BIDS = 1000;
+
+	@Param({ "36", "10000", "100000", "1000000", "4194304" })
+	public String domainSize;
+
+	@Param({ "false", "true" })
+	public String precompute;
+
+	private final AgentID opponent = new AgentID("Opponent");
+	private final List<Class<? extends Action>> possibleActions = Arrays.<Class<? extends Action>> asList(Accept.class,
+			Offer.class, EndNegotiation.class);
+	private BenchmarkDomain domain;
+	private Offer[] opponentOffers;
+	private JohnyBlack agent;
+	private int nextOffer;
+
+	@Setup(Level.Trial)
+	public void setUpDomain() throws Exception
+	{
+		domain = BenchmarkDomain.generate(domainSize, SEED);
+		List<Bid> bids = domain.getRandomBids(OPPONENT_BIDS, SEED);
+		opponentOffers = new Offer[bids.size()];
+		for (int i = 0; i < opponentOffers.length; i++)
+			opponentOffers[i] = new Offer(opponent, bids.get(i));
+	}
+
+	@Setup(Level.Iteration)
+	public void setUpAgent()
+	{
+		System.setProperty(JohnyBlack.PRECOMPUTE_PROPERTY, precompute);
+		agent = new JohnyBlack();
+		agent.init(domain.getInfo("JohnyBlack", 0.5, SEED));
+		nextOffer = 0;
+		receiveMessage();
+	}
+
+	@TearDown(Level.Iteration)
+	public void tearDownAgent()
+	{
+		agent.negotiationEnded(null);
+	}
+
+	@Benchmark
+	public void receiveMessage()
+	{
+		agent.receiveMessage(opponent, opponentOffers[nextOffer++ % opponentOffers.length]);
+	}
+
+	@Benchmark
+	public Action chooseAction()
+	{
+		receiveMessage();
+		return agent.chooseAction(possibleActions);
+	}
+
+	@Benchmark
+	public AbstractUtilitySpace estimateUtilitySpace()
+	{
+		return agent.estimateUtilitySpace();
+	}
+}
@@ -18,8 +18,6 @@
 # %%
 import matplotlib.pyplot as plt
 import csv
-import pandas as pd
-import numpy as np
 
 # negotiations = []
 
@@ -46,37 +44,26 @@ import numpy as np
 
 
 # %%
-cols = ["Dist. to Pareto", "Dist. to Nash", "Social Welfare", "Agent 1", "Agent 2", "Utility 1", "Utility 2"]
-df = pd.read_csv('../log/log1.csv', sep=';', usecols=cols)
-df
+# The log is summarised in a single pass by the Java analyser, which writes summary.csv and scatter.csv:
+# java -cp <lab-3 classes> group8.tournament.LogAnalyser ../log/log1.csv JohnyBlack ../log
+with open('../log/summary.csv', mode='r') as csv_file:
+    for row in csv.DictReader(csv_file, delimiter=';'):
+        print(row)
 
 # %%
-df = df.loc[df['Agent 1'].str.contains("JohnyBlack") | df['Agent 2'].str.contains("JohnyBlack")]
-df
-
-# %%
-data = df.to_numpy()
-
 paretoPointsX = []
 paretoPointsY = []
 otherX = []
 otherY = []
 
-for row in data:
-    if row[0] == 0:
-        if "JohnyBlack" in row[3]:
-            paretoPointsX.append(row[5])
-            paretoPointsY.append(row[6])
-        else:
-            paretoPointsX.append(row[6])
-            paretoPointsY.append(row[5])
-    else:
-        if "JohnyBlack" in row[3]:
-            otherX.append(row[5])
-            otherY.append(row[6])
+with open('../log/scatter.csv', mode='r') as csv_file:
+    for row in csv.DictReader(csv_file, delimiter=';'):
+        if row["Pareto"] == "1":
+            paretoPointsX.append(float(row["Own utility"]))
+            paretoPointsY.append(float(row["Other utility"]))
         else:
-            otherX.append(row[6])
-            otherY.append(row[5])
+            otherX.append(float(row["Own utility"]))
+            otherY.append(float(row["Other utility"]))
 
 fig,ax = plt.subplots()
 ax.scatter(paretoPointsX, paretoPointsY, c="blue", label="Pareto")
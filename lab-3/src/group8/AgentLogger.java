@@ -0,0 +1,199 @@
+package group8;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Supplier;
+
+/**
+ * Logger for diagnostics in the hot paths of an agent.
+ * Messages are built lazily from a {@link Supplier}, only once the level check passes, and are
+ * published to a lock-free ring buffer. A background thread drains the buffer to a file per
+ * session, so the negotiation thread never waits on I/O. The files are written to the directory in
+ * the system property {@value #DIRECTORY_PROPERTY}, by default {@value #DEFAULT_DIRECTORY}, apart
+ * from the logs Genius writes.
+ * If the buffer is full, messages are dropped rather than blocking the agent.
+ * The level is read from the system property {@value #LEVEL_PROPERTY} in any case, defaulting to INFO
+ * when it is not set or not a level.
+ */
+public class AgentLogger
+{
+	public enum Level { DEBUG, INFO, WARN, OFF }
+
+	public static final String LEVEL_PROPERTY = "group8.log.level";
+	public static final String DIRECTORY_PROPERTY = "group8.log.dir";
+	public static final String DEFAULT_DIRECTORY = "log/agents";
+	private static final int CAPACITY = 1 << 12;
+	private static final long IDLE_PARK_NANOS = TimeUnit.MILLISECONDS.toNanos(5);
+
+	private final String name;
+	private final int threshold;
+
+	private final AtomicReferenceArray<String> ring = new AtomicReferenceArray<>(CAPACITY);
+	private final AtomicLong writeSequence = new AtomicLong();
+	private volatile long readSequence = 0;
+	private final AtomicLong dropped = new AtomicLong();
+	private volatile boolean running = false;
+	private Thread drainer;
+	private File sessionFile;
+
+	/**
+	 * @param name The name of the agent, used in the log file name
+	 */
+	public AgentLogger(String name)
+	{
+		this(name, parseLevel(System.getProperty(LEVEL_PROPERTY)));
+	}
+
+	public AgentLogger(String name, Level level)
+	{
+		this.name = name;
+		this.threshold = level.ordinal();
+	}
+
+	/**
+	 * @return The level with the name in any case, or INFO if there is none
+	 */
+	public static Level parseLevel(String name)
+	{
+		if (name != null)
+		{
+			for (Level level : Level.values())
+			{
+				if (level.name().equalsIgnoreCase(name.trim()))
+					return level;
+			}
+		}
+		return Level.INFO;
+	}
+
+	public boolean isEnabled(Level level)
+	{
+		return level.ordinal() >= threshold;
+	}
+
+	public void debug(Supplier<String> message)
+	{
+		if (Level.DEBUG.ordinal() >= threshold)
+			publish(Level.DEBUG, message.get());
+	}
+
+	public void info(Supplier<String> message)
+	{
+		if (Level.INFO.ordinal() >= threshold)
+			publish(Level.INFO, message.get());
+	}
+
+	public void warn(Supplier<String> message)
+	{
+		if (Level.WARN.ordinal() >= threshold)
+			publish(Level.WARN, message.get());
+	}
+
+	/**
+	 * @return The number of messages dropped because the buffer was full
+	 */
+	public long getDropped()
+	{
+		return dropped.get();
+	}
+
+	/**
+	 * Drain all published messages, including those still being published, and stop the background thread.
+	 * Logging afterwards starts a new thread appending to the same session file.
+	 */
+	public synchronized void close()
+	{
+		if (!running)
+			return;
+
+		running = false;
+		LockSupport.unpark(drainer);
+		try
+		{
+			drainer.join();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	private void publish(Level level, String message)
+	{
+		if (!running)
+			start();
+
+		String line = System.currentTimeMillis() + " " + level + " " + message;
+		while (true)
+		{
+			long sequence = writeSequence.get();
+			if (sequence - readSequence >= CAPACITY)
+			{
+				dropped.incrementAndGet();
+				return;
+			}
+			if (writeSequence.compareAndSet(sequence, sequence + 1))
+			{
+				ring.lazySet((int) (sequence & (CAPACITY - 1)), line);
+				return;
+			}
+		}
+	}
+
+	private synchronized void start()
+	{
+		if (running)
+			return;
+
+		running = true;
+		drainer = new Thread(this::drain, name + "-logger");
+		drainer.setDaemon(true);
+		drainer.start();
+	}
+
+	private void drain()
+	{
+		if (sessionFile == null)
+		{
+			File directory = new File(System.getProperty(DIRECTORY_PROPERTY, DEFAULT_DIRECTORY));
+			directory.mkdirs();
+			sessionFile = new File(directory, name + "-" + System.currentTimeMillis() + ".log");
+		}
+
+		try (BufferedWriter writer = new BufferedWriter(new FileWriter(sessionFile, true)))
+		{
+			while (true)
+			{
+				boolean stopping = !running;
+				int drained = 0;
+				long sequence = readSequence;
+				String line;
+				// A claimed slot is empty until its producer has published the message
+				while ((line = ring.get((int) (sequence & (CAPACITY - 1)))) != null)
+				{
+					ring.lazySet((int) (sequence & (CAPACITY - 1)), null);
+					writer.write(line);
+					writer.newLine();
+					readSequence = ++sequence;
+					drained++;
+				}
+
+				if (drained > 0)
+					writer.flush();
+				else if (stopping && sequence == writeSequence.get())
+					return;
+				else if (stopping)
+					// A producer has claimed the next slot but not yet published its message
+					Thread.yield();
+				else
+					LockSupport.parkNanos(this, IDLE_PARK_NANOS);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+}
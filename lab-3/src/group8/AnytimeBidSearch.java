@@ -0,0 +1,41 @@
+package group8;
+
+import genius.core.Bid;
+
+/**
+ * A bid search that can be stopped at any time and still answer with the best candidate found so far.
+ * The search starts from a valid candidate, which is returned if the budget is already spent,
+ * and improves it one cheap step at a time until the budget runs out or nothing is left to try.
+ */
+public interface AnytimeBidSearch
+{
+	/**
+	 * Starts a new search, making its first candidate the best so far.
+	 */
+	void start();
+
+	/**
+	 * Tries the next candidate, keeping it if it beats the best so far.
+	 * @return Whether there are candidates left to try
+	 */
+	boolean improve();
+
+	/**
+	 * @return The best candidate found so far
+	 */
+	Bid getBest();
+
+	/**
+	 * Runs a new search until the budget runs out or the search is exhausted.
+	 * @param budgetNanos The wall-clock time the search may take
+	 * @return The best candidate found
+	 */
+	default Bid search(long budgetNanos)
+	{
+		long deadline = System.nanoTime() + budgetNanos;
+		start();
+		while (System.nanoTime() - deadline < 0 && improve())
+			;
+		return getBest();
+	}
+}
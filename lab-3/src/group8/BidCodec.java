@@ -0,0 +1,262 @@
+package group8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.issue.ValueDiscrete;
+
+/**
+ * Packs the bids of a discrete domain into longs, so bids can be stored, compared and hashed without
+ * genius {@link Bid} objects, which are backed by a map. A bid is coded as the mixed-radix number of its
+ * option ordinals: the ordinal of the issue in a slot is multiplied by the product of the numbers of
+ * options of the issues before it. On a domain of at most 2^63 outcomes, the codes of all bids are
+ * therefore exactly 0 up to the number of outcomes. Larger domains are split over several words, each a
+ * mixed-radix number over a run of issues.
+ * Codes are stored in long arrays, a bid taking {@link #getNumberOfWords()} consecutive elements.
+ * Issues are indexed by slot in domain order, and options by their ordinal in {@link IssueDiscrete#getValues()}.
+ */
+public class BidCodec
+{
+	private final Domain domain;
+	private final IssueDiscrete[] issues;
+	private final List<HashMap<Value, Integer>> ordinals;
+	private final int[] radix;
+	private final int[] word;
+	private final long[] multiplier;
+	private final int noWords;
+
+	/**
+	 * @param domain A domain of discrete issues
+	 */
+	public BidCodec(Domain domain)
+	{
+		this.domain = domain;
+		List<Issue> domainIssues = domain.getIssues();
+		int noIssues = domainIssues.size();
+		issues = new IssueDiscrete[noIssues];
+		ordinals = new ArrayList<>(noIssues);
+		radix = new int[noIssues];
+		word = new int[noIssues];
+		multiplier = new long[noIssues];
+
+		int currentWord = 0;
+		long product = 1;
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			issues[slot] = (IssueDiscrete) domainIssues.get(slot);
+			List<ValueDiscrete> values = issues[slot].getValues();
+			HashMap<Value, Integer> valueOrdinals = new HashMap<>();
+			for (int ordinal = 0; ordinal < values.size(); ordinal++)
+				valueOrdinals.put(values.get(ordinal), ordinal);
+			ordinals.add(valueOrdinals);
+
+			radix[slot] = Math.max(1, values.size());
+			if (product > Long.MAX_VALUE / radix[slot])
+			{
+				currentWord++;
+				product = 1;
+			}
+			word[slot] = currentWord;
+			multiplier[slot] = product;
+			product *= radix[slot];
+		}
+		noWords = currentWord + 1;
+	}
+
+	public Domain getDomain()
+	{
+		return domain;
+	}
+
+	public int getNumberOfIssues()
+	{
+		return issues.length;
+	}
+
+	public IssueDiscrete getIssue(int slot)
+	{
+		return issues[slot];
+	}
+
+	public int getNumberOfValues(int slot)
+	{
+		return radix[slot];
+	}
+
+	/**
+	 * @return The number of longs the code of a bid takes
+	 */
+	public int getNumberOfWords()
+	{
+		return noWords;
+	}
+
+	/**
+	 * @return Whether the code of a bid fits in a single long
+	 */
+	public boolean isPacked()
+	{
+		return noWords == 1;
+	}
+
+	/**
+	 * @return The ordinal of the option the bid chooses for the issue in the slot
+	 */
+	public int getOrdinal(Bid bid, int slot)
+	{
+		return ordinals.get(slot).get(bid.getValue(issues[slot].getNumber()));
+	}
+
+	/**
+	 * Writes the code of a bid to the array, from the offset on.
+	 */
+	public void encode(Bid bid, long[] codes, int offset)
+	{
+		Arrays.fill(codes, offset, offset + noWords, 0);
+		for (int slot = 0; slot < issues.length; slot++)
+			codes[offset + word[slot]] += multiplier[slot] * getOrdinal(bid, slot);
+	}
+
+	/**
+	 * Writes the code of the bid with the ordinals to the array, from the offset on.
+	 */
+	public void encode(int[] bidOrdinals, long[] codes, int offset)
+	{
+		Arrays.fill(codes, offset, offset + noWords, 0);
+		for (int slot = 0; slot < issues.length; slot++)
+			codes[offset + word[slot]] += multiplier[slot] * bidOrdinals[slot];
+	}
+
+	/**
+	 * @return The code of the bid, on a packed domain
+	 */
+	public long encode(Bid bid)
+	{
+		checkPacked();
+		long code = 0;
+		for (int slot = 0; slot < issues.length; slot++)
+			code += multiplier[slot] * getOrdinal(bid, slot);
+		return code;
+	}
+
+	/**
+	 * @return The code of the bid with the ordinals, on a packed domain
+	 */
+	public long encode(int[] bidOrdinals)
+	{
+		checkPacked();
+		long code = 0;
+		for (int slot = 0; slot < issues.length; slot++)
+			code += multiplier[slot] * bidOrdinals[slot];
+		return code;
+	}
+
+	/**
+	 * @return The ordinal of the issue in the slot of the bid coded in the array from the offset on
+	 */
+	public int getOrdinal(long[] codes, int offset, int slot)
+	{
+		return (int) (codes[offset + word[slot]] / multiplier[slot] % radix[slot]);
+	}
+
+	/**
+	 * @return The ordinal of the issue in the slot of the bid with the code, on a packed domain
+	 */
+	public int getOrdinal(long code, int slot)
+	{
+		return (int) (code / multiplier[slot] % radix[slot]);
+	}
+
+	/**
+	 * Reads the ordinals of the bid coded in the array from the offset on.
+	 */
+	public void decode(long[] codes, int offset, int[] bidOrdinals)
+	{
+		for (int slot = 0; slot < issues.length; slot++)
+			bidOrdinals[slot] = getOrdinal(codes, offset, slot);
+	}
+
+	/**
+	 * @return The bid coded in the array from the offset on
+	 */
+	public Bid decode(long[] codes, int offset)
+	{
+		HashMap<Integer, Value> values = new HashMap<>();
+		for (int slot = 0; slot < issues.length; slot++)
+			values.put(issues[slot].getNumber(), issues[slot].getValue(getOrdinal(codes, offset, slot)));
+		return new Bid(domain, values);
+	}
+
+	/**
+	 * @return The bid with the code, on a packed domain
+	 */
+	public Bid decode(long code)
+	{
+		checkPacked();
+		HashMap<Integer, Value> values = new HashMap<>();
+		for (int slot = 0; slot < issues.length; slot++)
+			values.put(issues[slot].getNumber(), issues[slot].getValue(getOrdinal(code, slot)));
+		return new Bid(domain, values);
+	}
+
+	/**
+	 * @return The bid with the ordinals
+	 */
+	public Bid toBid(int[] bidOrdinals)
+	{
+		HashMap<Integer, Value> values = new HashMap<>();
+		for (int slot = 0; slot < issues.length; slot++)
+			values.put(issues[slot].getNumber(), issues[slot].getValue(bidOrdinals[slot]));
+		return new Bid(domain, values);
+	}
+
+	/**
+	 * @return Whether the bids coded in the arrays from the offsets on are the same
+	 */
+	public boolean equals(long[] codes, int offset, long[] otherCodes, int otherOffset)
+	{
+		for (int i = 0; i < noWords; i++)
+		{
+			if (codes[offset + i] != otherCodes[otherOffset + i])
+				return false;
+		}
+		return true;
+	}
+
+	/**
+	 * @return A well mixed hash of the bid coded in the array from the offset on
+	 */
+	public int hash(long[] codes, int offset)
+	{
+		int hash = 0;
+		for (int i = 0; i < noWords; i++)
+			hash = 31 * hash + hash(codes[offset + i]);
+		return hash;
+	}
+
+	/**
+	 * @return A well mixed hash of a code, since codes of similar bids differ in few bits
+	 */
+	public static int hash(long code)
+	{
+		code ^= code >>> 33;
+		code *= 0xFF51AFD7ED558CCDL;
+		code ^= code >>> 33;
+		code *= 0xC4CEB9FE1A85EC53L;
+		code ^= code >>> 33;
+		return (int) code;
+	}
+
+	private void checkPacked()
+	{
+		if (noWords != 1)
+			throw new IllegalStateException("Bids of a domain of more than 2^63 outcomes take " + noWords + " longs");
+	}
+}
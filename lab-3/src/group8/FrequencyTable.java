@@ -0,0 +1,247 @@
+package group8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import genius.core.Bid;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Value;
+import genius.core.issue.ValueDiscrete;
+
+/**
+ * Counts how often the opponent offered each option of each issue.
+ * Issues are mapped to dense slots and values to ordinals once, so that recording
+ * an offer and reading counts back does not allocate.
+ * The options of each issue are also kept ordered by count, so the preference order
+ * based option values are available without ranking the options on every read.
+ */
+public class FrequencyTable
+{
+	private final IssueDiscrete[] issues;
+	private final int[] slotOfIssueNumber;
+	private final List<HashMap<ValueDiscrete, Integer>> ordinals;
+	private final int[][] counts;
+	private final int[][] orderByCount;
+	private final int[][] positionInOrder;
+	private final double[][] optionValues;
+	private final long[] sumOfSquaredCounts;
+	private final double[] normalisedWeights;
+	private boolean weightsStale = true;
+	private int noBids = 0;
+
+	/**
+	 * Builds an empty table for the given issues.
+	 * @param domainIssues The issues of the domain, assumed to be discrete
+	 */
+	public FrequencyTable(List<Issue> domainIssues)
+	{
+		int noIssues = domainIssues.size();
+		issues = new IssueDiscrete[noIssues];
+		ordinals = new ArrayList<>(noIssues);
+		counts = new int[noIssues][];
+		orderByCount = new int[noIssues][];
+		positionInOrder = new int[noIssues][];
+		optionValues = new double[noIssues][];
+		sumOfSquaredCounts = new long[noIssues];
+		normalisedWeights = new double[noIssues];
+
+		int maxIssueNumber = 0;
+		for (Issue issue : domainIssues)
+			maxIssueNumber = Math.max(maxIssueNumber, issue.getNumber());
+		slotOfIssueNumber = new int[maxIssueNumber + 1];
+		Arrays.fill(slotOfIssueNumber, -1);
+
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			IssueDiscrete issueDiscrete = (IssueDiscrete) domainIssues.get(slot);
+			issues[slot] = issueDiscrete;
+			slotOfIssueNumber[issueDiscrete.getNumber()] = slot;
+
+			List<ValueDiscrete> values = issueDiscrete.getValues();
+			HashMap<ValueDiscrete, Integer> valueOrdinals = new HashMap<>();
+			for (int ordinal = 0; ordinal < values.size(); ordinal++)
+				valueOrdinals.put(values.get(ordinal), ordinal);
+
+			ordinals.add(valueOrdinals);
+			int noOptions = values.size();
+			counts[slot] = new int[noOptions];
+			orderByCount[slot] = new int[noOptions];
+			positionInOrder[slot] = new int[noOptions];
+			optionValues[slot] = new double[noOptions];
+			for (int ordinal = 0; ordinal < noOptions; ordinal++)
+			{
+				orderByCount[slot][ordinal] = ordinal;
+				positionInOrder[slot][ordinal] = ordinal;
+				// Every option is tied with all others, so all are ranked last
+				optionValues[slot][ordinal] = 1.0 / noOptions;
+			}
+		}
+	}
+
+	/**
+	 * Record every option of an offer made by the opponent.
+	 * @param bid The offer received
+	 */
+	public void addBid(Bid bid)
+	{
+		for (int slot = 0; slot < issues.length; slot++)
+		{
+			int ordinal = getOrdinal(slot, bid);
+			// (c + 1)^2 - c^2 = 2c + 1
+			sumOfSquaredCounts[slot] += 2L * counts[slot][ordinal] + 1;
+			incrementCount(slot, ordinal);
+		}
+
+		noBids++;
+		weightsStale = true;
+	}
+
+	/**
+	 * Increment the count of an option, keeping the options ordered by descending count.
+	 * The option is swapped to the front of the group of options sharing its old count,
+	 * after which it is the last option of the group with the new count. Only that
+	 * group's ranks change, as each of its options now has one more option counted at least as often.
+	 */
+	private void incrementCount(int slot, int ordinal)
+	{
+		int[] slotCounts = counts[slot];
+		int[] order = orderByCount[slot];
+		int[] position = positionInOrder[slot];
+		int count = slotCounts[ordinal];
+
+		int from = position[ordinal];
+		int front = from;
+		while (front > 0 && slotCounts[order[front - 1]] == count)
+			front--;
+
+		int displaced = order[front];
+		order[from] = displaced;
+		position[displaced] = from;
+		order[front] = ordinal;
+		position[ordinal] = front;
+		slotCounts[ordinal]++;
+
+		// rank = front + 1, so (noOptions - rank + 1) / noOptions
+		int noOptions = order.length;
+		double value = (noOptions - front) / (double) noOptions;
+		for (int i = front; i >= 0 && slotCounts[order[i]] == count + 1; i--)
+			optionValues[slot][order[i]] = value;
+	}
+
+	/**
+	 * Makes this table a copy of another table over the same issues, so it can be read while the
+	 * other records new offers.
+	 * @param other A table built for the same issues
+	 */
+	public void copyFrom(FrequencyTable other)
+	{
+		for (int slot = 0; slot < issues.length; slot++)
+		{
+			System.arraycopy(other.counts[slot], 0, counts[slot], 0, counts[slot].length);
+			System.arraycopy(other.orderByCount[slot], 0, orderByCount[slot], 0, orderByCount[slot].length);
+			System.arraycopy(other.positionInOrder[slot], 0, positionInOrder[slot], 0, positionInOrder[slot].length);
+			System.arraycopy(other.optionValues[slot], 0, optionValues[slot], 0, optionValues[slot].length);
+		}
+		System.arraycopy(other.sumOfSquaredCounts, 0, sumOfSquaredCounts, 0, sumOfSquaredCounts.length);
+		noBids = other.noBids;
+		weightsStale = true;
+	}
+
+	/**
+	 * The value of an option, calculated using preference order: with rank r being the number
+	 * of options offered at least as often, the value is (noOptions - r + 1) / noOptions.
+	 * @param slot The slot of the issue
+	 * @param ordinal The ordinal of the option
+	 * @return The value of the option
+	 */
+	public double getOptionValue(int slot, int ordinal)
+	{
+		return optionValues[slot][ordinal];
+	}
+
+	/**
+	 * Get the normalised weights for each issue, using the Gini Index.
+	 * The weight of an issue is the sum of its squared option frequencies; the noBids^2
+	 * denominator is shared by every issue and cancels out when normalising.
+	 * The vector is cached until the next offer is recorded and must not be modified.
+	 * @return An array of weights indexed by slot, uniform if no offers have been recorded
+	 */
+	public double[] getNormalisedWeights()
+	{
+		if (weightsStale)
+		{
+			double weightSum = 0;
+			for (long weight : sumOfSquaredCounts)
+				weightSum += weight;
+
+			for (int slot = 0; slot < issues.length; slot++)
+				normalisedWeights[slot] = weightSum > 0 ? sumOfSquaredCounts[slot] / weightSum : 1.0 / issues.length;
+
+			weightsStale = false;
+		}
+		return normalisedWeights;
+	}
+
+	/**
+	 * @param slot The slot of the issue
+	 * @param bid A bid over the domain
+	 * @return The ordinal of the option the bid chooses for the issue
+	 */
+	public int getOrdinal(int slot, Bid bid)
+	{
+		Value value = bid.getValue(issues[slot].getNumber());
+		return ordinals.get(slot).get(value);
+	}
+
+	/**
+	 * @param issueNumber The number of an issue in the domain
+	 * @return The slot of the issue, or -1 if it is not part of the domain
+	 */
+	public int getSlot(int issueNumber)
+	{
+		if (issueNumber < 0 || issueNumber >= slotOfIssueNumber.length)
+			return -1;
+		return slotOfIssueNumber[issueNumber];
+	}
+
+	public int getCount(int slot, int ordinal)
+	{
+		return counts[slot][ordinal];
+	}
+
+	public int getNumberOfIssues()
+	{
+		return issues.length;
+	}
+
+	public int getNumberOfValues(int slot)
+	{
+		return counts[slot].length;
+	}
+
+	public IssueDiscrete getIssue(int slot)
+	{
+		return issues[slot];
+	}
+
+	public int getNoBids()
+	{
+		return noBids;
+	}
+
+	@Override
+	public String toString()
+	{
+		StringBuilder builder = new StringBuilder("Frequency table");
+		for (int slot = 0; slot < issues.length; slot++)
+		{
+			builder.append(System.lineSeparator()).append("Issue").append(issues[slot].getNumber()).append(' ');
+			for (int count : counts[slot])
+				builder.append(count).append(' ');
+		}
+		return builder.toString();
+	}
+}
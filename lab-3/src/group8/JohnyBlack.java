@@ -1,9 +1,7 @@
 package group8;
 
-import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 import genius.core.AgentID;
 import genius.core.Bid;
@@ -27,11 +25,26 @@ import genius.core.utility.EvaluatorDiscrete;
  */
 public class JohnyBlack extends AbstractNegotiationParty
 {
+	public static final String PRECOMPUTE_PROPERTY = "group8.precompute";
+	/** Normalised time after which a precomputed snapshot is no longer used */
+	private static final double MAX_SNAPSHOT_AGE = 0.01;
 	private static double MINIMUM_TARGET;
 	private Bid lastOffer;
+	private int receivedOffers = 0;
 	private double concedeThreshold;
-	private HashMap<Integer, HashMap<String, Integer>> frequencyTable = new HashMap<>();
-	private int noBids = 0;
+	private FrequencyTable frequencyTable;
+	private ExtremeBidSolver extremeBidSolver;
+	private UtilityKernel utilityKernel;
+	/** Searches the negotiation thread runs when there is no recent snapshot */
+	private FrontierSearch turnSearch;
+	/** Searches the worker runs after every received offer */
+	private FrontierSearch workerSearch;
+	private TurnLatency turnLatency;
+	/** Guards the opponent model, which the negotiation thread updates and the searches copy */
+	private final Object modelLock = new Object();
+	private SpeculativeWorker<OfferSnapshot> worker;
+	private int staleSnapshots = 0;
+	private AgentLogger log;
 
 	/**
 	 * Initializes a new instance of the agent.
@@ -40,152 +53,143 @@ public class JohnyBlack extends AbstractNegotiationParty
 	public void init(NegotiationInfo info) 
 	{
 		super.init(info);
+		log = new AgentLogger(getClass().getSimpleName() + "-" + info.getAgentID());
 		AbstractUtilitySpace utilitySpace = info.getUtilitySpace();
 		AdditiveUtilitySpace additiveUtilitySpace = (AdditiveUtilitySpace) utilitySpace;
 
 		List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
-
-		for (Issue issue : issues) {
-			int issueNumber = issue.getNumber();
-			System.out.println(">> " + issue.getName() + " weight: " + additiveUtilitySpace.getWeight(issueNumber));
-
-			// Assuming that issues are discrete only
-			IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-			EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issueNumber);
-
-			HashMap<String, Integer> issueHashMap = new HashMap<>();
-
-			for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
-				String value = valueDiscrete.getValue();
-				issueHashMap.put(value, 0);
-				System.out.println(value);
-				System.out.println("Evaluation(getValue): " + evaluatorDiscrete.getValue(valueDiscrete));
-				try
-				{
-					System.out.println("Evaluation(getEvaluation): " + evaluatorDiscrete.getEvaluation(valueDiscrete));
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
-			}
-
-			frequencyTable.put(issueNumber, issueHashMap);
-
-			double minUtility = getUtility(getMinUtilityBid());
-			double maxUtility = getUtility(getMaxUtilityBid());
-			concedeThreshold = (maxUtility + minUtility) / 2;
-			MINIMUM_TARGET = maxUtility;
+		frequencyTable = new FrequencyTable(issues);
+
+		if (log.isEnabled(AgentLogger.Level.DEBUG))
+			logUtilitySpace(additiveUtilitySpace);
+
+		utilityKernel = new UtilityKernel(additiveUtilitySpace, new BidCodec(additiveUtilitySpace.getDomain()));
+		extremeBidSolver = new ExtremeBidSolver(utilityKernel);
+		double minUtility = extremeBidSolver.getMinUtility();
+		double maxUtility = extremeBidSolver.getMaxUtility();
+		concedeThreshold = (maxUtility + minUtility) / 2;
+		MINIMUM_TARGET = maxUtility;
+		turnSearch = new FrontierSearch(issues);
+		turnLatency = new TurnLatency();
+		if (Boolean.parseBoolean(System.getProperty(PRECOMPUTE_PROPERTY, "true")))
+		{
+			workerSearch = new FrontierSearch(issues);
+			worker = new SpeculativeWorker<>(getClass().getSimpleName() + "-" + info.getAgentID());
 		}
 	}
 
 	/**
 	 * Makes a random offer above the minimum utility target
 	 * Accepts everything above the reservation value at the very end of the negotiation; or breaks off otherwise. 
+	 * The offer and our utility of the last received offer come from the snapshot the worker computed after
+	 * receiving it, or are computed now if there is no recent snapshot.
 	 */
 	@Override
 	public Action chooseAction(List<Class<? extends Action>> possibleActions) 
 	{
-		// Check for acceptance if we have received an offer
-		if (lastOffer != null)
+		turnLatency.startTurn();
+		try
 		{
-			double timeDependentThreshold = concedeThreshold + ((1 - timeline.getTime()) * (getUtility(getMaxUtilityBid()) - concedeThreshold));
-			System.out.println("Current time threshold: " + timeDependentThreshold);
-			MINIMUM_TARGET = Math.max(timeDependentThreshold, concedeThreshold);
-			System.out.println("Minimum target: " + MINIMUM_TARGET);
-			System.out.println("Concede threshold: " + concedeThreshold);
-			System.out.println();
-			if (timeline.getTime() >= 0.99)
+			OfferSnapshot snapshot = getSnapshot();
+
+			// Check for acceptance if we have received an offer
+			if (lastOffer != null)
 			{
-				if (getUtility(lastOffer) >= concedeThreshold)
+				MINIMUM_TARGET = getTarget(timeline.getTime());
+				log.debug(() -> "Minimum target: " + MINIMUM_TARGET);
+				log.debug(() -> "Concede threshold: " + concedeThreshold);
+				if (timeline.getTime() >= 0.99)
+				{
+					if (snapshot.getReceivedUtility() >= concedeThreshold)
+						return new Accept(getPartyId(), lastOffer);
+					else
+						return new EndNegotiation(getPartyId());
+				}
+				else if (snapshot.getReceivedUtility() >= MINIMUM_TARGET)
+				{
 					return new Accept(getPartyId(), lastOffer);
-				else
-					return new EndNegotiation(getPartyId());
-			}
-			else if (getUtility(lastOffer) >= MINIMUM_TARGET)
-			{
-				return new Accept(getPartyId(), lastOffer);
+				}
 			}
-		}
-
-		// Otherwise, send out a random offer above the target utility 
-		return new Offer(getPartyId(), generateApproxParetoOfferAboveTarget(10));
-	}
 
-	private Bid getMaxUtilityBid() {
-		try {
-			return utilitySpace.getMaxUtilityBid();
-		} catch (Exception e) {
-			e.printStackTrace();
+			// Otherwise, send out the Pareto efficient offer above the target utility that is best for the opponent
+			return new Offer(getPartyId(), snapshot.getOffer());
 		}
-		return null;
-	}
-
-	private Bid getMinUtilityBid() {
-		try {
-			return utilitySpace.getMinUtilityBid();
-		} catch (Exception e) {
-			e.printStackTrace();
+		finally
+		{
+			long latency = turnLatency.endTurn();
+			if (turnLatency.isOverSlo(latency))
+				log.warn(() -> "Turn took " + latency / 1e6 + " ms");
 		}
-		return null;
 	}
 
 	/**
-	 * Sample a number of bids above the threshold, and select one that is approximately pareto efficient
-	 * @param sampleSize The size of the sample to take
-	 * @return The approximately pareto efficient bid
+	 * The snapshot computed for the last received offer if it is recent, or else a new one.
+	 * The worker is given the search budget of the turn to finish a snapshot it is still computing.
+	 * The worker searches its own copy of the opponent model, so the turn never waits for it longer than that.
 	 */
-	private Bid generateApproxParetoOfferAboveTarget(int sampleSize)
+	private OfferSnapshot getSnapshot()
 	{
-		double maxOpponentUtil = 0;
-		Bid approxParetoBid = null;
-
-		for (int n = 0; n < sampleSize; n++)
+		if (worker != null)
 		{
-			Bid randomBid;
-			double util;
-			int i = 0;
-			// try 100 times to find a bid under the target utility
-			do
-			{
-				randomBid = generateRandomBid();
-				util = utilitySpace.getUtility(randomBid);
-
-				// Estimate opponent utility
-				double opponentUtil = predictValuation(randomBid);
-			}
-			while (util < MINIMUM_TARGET && i++ < 100);
-
-			if (util > maxOpponentUtil)
-				approxParetoBid = randomBid;
+			OfferSnapshot snapshot = worker.awaitSnapshot(turnLatency.getSearchBudget(timeline));
+			if (snapshot != null && snapshot.isFresh(receivedOffers, timeline.getTime(), MAX_SNAPSHOT_AGE))
+				return snapshot;
+			if (lastOffer != null)
+				staleSnapshots++;
 		}
+		return computeSnapshot(turnSearch, receivedOffers, lastOffer, turnLatency.getSearchBudget(timeline));
+	}
 
-		return approxParetoBid;
+	/**
+	 * Computes the offer for the current target, improved for as long as the budget allows, and our
+	 * utility of the received offer. The search runs on a copy of the opponent model, taken at the start.
+	 * @param search The search of the calling thread
+	 * @param receivedOffers The number of offers received
+	 * @param received The last received offer, or null before the first
+	 * @param budgetNanos The wall-clock time the search for the offer may take
+	 */
+	private OfferSnapshot computeSnapshot(FrontierSearch search, int receivedOffers, Bid received, long budgetNanos)
+	{
+		double time = timeline.getTime();
+		double target = received == null ? MINIMUM_TARGET : getTarget(time);
+		Bid offer = search.searchAbove(target, budgetNanos);
+		return new OfferSnapshot(receivedOffers, time, target, received == null ? 0 : utilityKernel.getUtility(received), offer);
+	}
+
+	/**
+	 * @param time The normalised time
+	 * @return The target utility, conceding linearly from our best utility to the concede threshold
+	 */
+	private double getTarget(double time)
+	{
+		double timeDependentThreshold = concedeThreshold + ((1 - time) * (extremeBidSolver.getMaxUtility() - concedeThreshold));
+		return Math.max(timeDependentThreshold, concedeThreshold);
 	}
 
 	/**
-	 * Remembers the offers received by the opponent.
+	 * Remembers the offers received by the opponent, and has the worker compute the answer to them.
 	 */
 	@Override
 	public void receiveMessage(AgentID sender, Action action) 
 	{
 		if (action instanceof Offer) 
 		{
-			lastOffer = ((Offer) action).getBid();
-
-			System.out.println("Received offer: " + lastOffer.toString());
-			noBids += 1;
-			// Update frequency table
-			List<Issue> issues = lastOffer.getIssues();
-
-			for (Issue issue : issues) {
-				int issueNumber = issue.getNumber();
-				String value = ((ValueDiscrete) lastOffer.getValue(issueNumber)).getValue();
-				int currentCount = frequencyTable.get(issueNumber).get(value);
-				frequencyTable.get(issueNumber).put(value, currentCount + 1);
+			Bid received = ((Offer) action).getBid();
+			lastOffer = received;
+			int sequence = ++receivedOffers;
+
+			log.debug(() -> "Received offer: " + received);
+			synchronized (modelLock)
+			{
+				// Update frequency table
+				frequencyTable.addBid(received);
+
+				log.debug(frequencyTable::toString);
+				log.debug(() -> "Predicted value: " + predictValuation(received));
 			}
 
-			printFrequencyTable();
-			double predictedValue = predictValuation(lastOffer);
-			System.out.println("Predicted value: " + predictedValue);
+			if (worker != null)
+				worker.request(() -> computeSnapshot(workerSearch, sequence, received, turnLatency.getIdleSearchBudget(timeline)));
 		}
 	}
 
@@ -196,81 +200,183 @@ public class JohnyBlack extends AbstractNegotiationParty
 	 */
 	private double predictValuation(Bid offer)
 	{
-		List<Issue> issues = offer.getIssues();
 		double value = 0;
-		double[] optionValues = getOptionValues(offer, issues);
-		double[] normalisedWeights = getNormalisedWeights(issues);
-		for (int i = 0; i < optionValues.length; i++)
-			value += optionValues[i] * normalisedWeights[i];
+		double[] normalisedWeights = frequencyTable.getNormalisedWeights();
+		for (int i = 0; i < normalisedWeights.length; i++)
+			value += frequencyTable.getOptionValue(i, frequencyTable.getOrdinal(i, offer)) * normalisedWeights[i];
 
 		return value;
 	}
 
 	/**
-	 * Calculate the value of an opponent's options
-	 * @param bid The bid provided by the opponent
-	 * @param issues A list of issues that the bid negotiates about
-	 * @return A list of option values, calculated using preference order
+	 * Stops the worker, reports the turn latencies of this session and flushes its diagnostics.
 	 */
-	private double[] getOptionValues(Bid bid, List<Issue> issues) {
-		double[] optionValues = new double[issues.size()];
-		for (int i = 0; i < issues.size(); i++)
+	@Override
+	public Map<String, String> negotiationEnded(Bid acceptedBid)
+	{
+		if (worker != null)
 		{
-			Issue issue = issues.get(i);
+			worker.close();
+			log.info(() -> "Turns without a recent snapshot: " + staleSnapshots);
+		}
+		log.info(turnLatency::toString);
+		log.close();
+		return super.negotiationEnded(acceptedBid);
+	}
+
+	/**
+	 * Logs the weight of every issue and the evaluation of every option of our utility space
+	 */
+	private void logUtilitySpace(AdditiveUtilitySpace additiveUtilitySpace)
+	{
+		for (Issue issue : additiveUtilitySpace.getDomain().getIssues()) {
 			int issueNumber = issue.getNumber();
-			HashMap<String, Integer> options = frequencyTable.get(issueNumber);
-			double noOptions = options.keySet().size();
+			log.debug(() -> ">> " + issue.getName() + " weight: " + additiveUtilitySpace.getWeight(issueNumber));
 
-			String chosenOption = ((ValueDiscrete) bid.getValue(issueNumber)).getValue();
-			int rank = 0;
-			int optionValue = options.get(chosenOption);
-			for (String option : options.keySet())
-			{
-				if (options.get(option) >= optionValue)
-					rank += 1;
-			}
+			// Assuming that issues are discrete only
+			IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
+			EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issueNumber);
 
-			optionValues[i] = (noOptions - rank + 1) / noOptions;
+			for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
+				log.debug(valueDiscrete::getValue);
+				log.debug(() -> "Evaluation(getValue): " + evaluatorDiscrete.getValue(valueDiscrete));
+				try
+				{
+					Double evaluation = evaluatorDiscrete.getEvaluation(valueDiscrete);
+					log.debug(() -> "Evaluation(getEvaluation): " + evaluation);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
+			}
 		}
-
-		return optionValues;
 	}
 
 	/**
-	 * Get the normalised weights for each issue, using the Gini Index
-	 * @param issues A list of issues that the bid negotiates about
-	 * @return An array of weights
+	 * Improves the frontier offer for the predicted opponent utility by changing the options of one or two
+	 * issues at a time, keeping our utility above the target. The frontier keeps one bid per bucket of our
+	 * utility, so bids next to it can still be better for the opponent. The moves are tried in a fixed
+	 * cycle over pairs of options, and the search is exhausted after a whole cycle without improvement.
+	 * Every search keeps its own copy of the opponent model and the frontier on it, which it refreshes
+	 * under the model lock when it starts, so it runs without holding the lock.
 	 */
-	private double[] getNormalisedWeights(List<Issue> issues) {
-		double[] weights = new double[issues.size()];
-		double noBidsSquared = Math.pow(noBids, 2);
+	private class FrontierSearch implements AnytimeBidSearch
+	{
+		private final FrequencyTable model;
+		private final ParetoFrontier paretoFrontier;
+		private final int[] optionSlot;
+		private final int[] optionOrdinal;
+		private final long noMoves;
+		private int[] ordinals;
+		private double ownUtility;
+		private double target;
+		private double[] weights;
+		private int first;
+		private int second;
+		private long movesWithoutImprovement;
+
+		private FrontierSearch(List<Issue> issues)
+		{
+			model = new FrequencyTable(issues);
+			paretoFrontier = new ParetoFrontier(extremeBidSolver, model, utilityKernel);
+			int noOptions = 0;
+			for (int slot = 0; slot < model.getNumberOfIssues(); slot++)
+				noOptions += model.getNumberOfValues(slot);
+			optionSlot = new int[noOptions];
+			optionOrdinal = new int[noOptions];
+			int option = 0;
+			for (int slot = 0; slot < model.getNumberOfIssues(); slot++)
+			{
+				for (int ordinal = 0; ordinal < model.getNumberOfValues(slot); ordinal++)
+				{
+					optionSlot[option] = slot;
+					optionOrdinal[option++] = ordinal;
+				}
+			}
+			noMoves = (long) noOptions * (noOptions + 1) / 2;
+		}
 
-		for (int i = 0; i < issues.size(); i++)
+		/**
+		 * Copies the opponent model and runs a new search for an offer above the target.
+		 */
+		private Bid searchAbove(double target, long budgetNanos)
 		{
-			List<Integer> optionCounts = new ArrayList<>(frequencyTable.get(issues.get(i).getNumber()).values());
-			double weight = 0;
-			for (Integer option : optionCounts)
-				weight += (Math.pow(option, 2) / noBidsSquared);
+			synchronized (modelLock)
+			{
+				model.copyFrom(frequencyTable);
+			}
+			this.target = target;
+			return search(budgetNanos);
+		}
 
-			weights[i] = weight;
+		@Override
+		public void start()
+		{
+			ordinals = paretoFrontier.getOrdinalsAboveTarget(target);
+			if (ordinals == null)
+				ordinals = extremeBidSolver.getMaxOrdinals();
+			ownUtility = utilityKernel.getUtility(ordinals);
+			weights = model.getNormalisedWeights();
+			first = 0;
+			second = 0;
+			movesWithoutImprovement = 0;
 		}
 
-		double weightSum = Arrays.stream(weights).sum();
-		double[] normalisedWeights = new double[issues.size()];
-		for (int i = 0; i < weights.length; i++)
-			normalisedWeights[i] = weights[i] / weightSum;
+		@Override
+		public boolean improve()
+		{
+			// Without offers, every bid is predicted to be worth the same to the opponent
+			if (model.getNoBids() == 0 || movesWithoutImprovement >= noMoves)
+				return false;
 
-		return normalisedWeights;
-	}
+			int firstSlot = optionSlot[first];
+			int secondSlot = optionSlot[second];
+			if (first == second || firstSlot != secondSlot)
+			{
+				double ownChange = ownChange(firstSlot, optionOrdinal[first]);
+				double opponentChange = opponentChange(firstSlot, optionOrdinal[first]);
+				if (first != second)
+				{
+					ownChange += ownChange(secondSlot, optionOrdinal[second]);
+					opponentChange += opponentChange(secondSlot, optionOrdinal[second]);
+				}
+				if (opponentChange > 1e-12 && ownUtility + ownChange >= target)
+				{
+					ordinals[firstSlot] = optionOrdinal[first];
+					ordinals[secondSlot] = optionOrdinal[second];
+					ownUtility += ownChange;
+					movesWithoutImprovement = -1;
+				}
+			}
+			movesWithoutImprovement++;
 
-	private void printFrequencyTable() {
-		System.out.println("Frequency table");
-		for (Integer issueNo : frequencyTable.keySet()) {
-			System.out.print("Issue" + issueNo + " ");
-			for (String option : frequencyTable.get(issueNo).keySet()) {
-				System.out.print(frequencyTable.get(issueNo).get(option) + " ");
+			if (++second == optionSlot.length)
+			{
+				first = first + 1 == optionSlot.length ? 0 : first + 1;
+				second = first;
 			}
-			System.out.println();
+			return true;
+		}
+
+		/**
+		 * @return The change of our utility when the issue takes the option
+		 */
+		private double ownChange(int slot, int ordinal)
+		{
+			return utilityKernel.getContribution(slot, ordinal) - utilityKernel.getContribution(slot, ordinals[slot]);
+		}
+
+		/**
+		 * @return The change of the predicted opponent utility when the issue takes the option
+		 */
+		private double opponentChange(int slot, int ordinal)
+		{
+			return weights[slot] * (model.getOptionValue(slot, ordinal) - model.getOptionValue(slot, ordinals[slot]));
+		}
+
+		@Override
+		public Bid getBest()
+		{
+			return extremeBidSolver.toBid(ordinals);
 		}
 	}
 
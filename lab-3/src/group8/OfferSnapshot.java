@@ -0,0 +1,65 @@
+package group8;
+
+import genius.core.Bid;
+
+/**
+ * The answer of an agent to the offers it has received so far: the offer it makes next and our utility
+ * of the last received offer, from which the acceptance decision follows. The target only falls over
+ * time, so an offer above the target at the time of the snapshot stays above the target of a later turn,
+ * and an offer we would accept stays acceptable.
+ */
+public final class OfferSnapshot
+{
+	private final int receivedOffers;
+	private final double time;
+	private final double target;
+	private final double receivedUtility;
+	private final Bid offer;
+
+	/**
+	 * @param receivedOffers The number of offers received when the snapshot was computed
+	 * @param time The normalised time the snapshot was computed at
+	 * @param target The target utility of the offer
+	 * @param receivedUtility Our utility of the last received offer, or 0 if there is none
+	 * @param offer The offer to make
+	 */
+	public OfferSnapshot(int receivedOffers, double time, double target, double receivedUtility, Bid offer)
+	{
+		this.receivedOffers = receivedOffers;
+		this.time = time;
+		this.target = target;
+		this.receivedUtility = receivedUtility;
+		this.offer = offer;
+	}
+
+	/**
+	 * @param receivedOffers The number of offers received now
+	 * @param time The normalised time now
+	 * @param maxAge The normalised time after which a snapshot is too old to use
+	 * @return Whether the snapshot answers the last received offer and is recent enough
+	 */
+	public boolean isFresh(int receivedOffers, double time, double maxAge)
+	{
+		return this.receivedOffers == receivedOffers && time - this.time <= maxAge;
+	}
+
+	public double getTime()
+	{
+		return time;
+	}
+
+	public double getTarget()
+	{
+		return target;
+	}
+
+	public double getReceivedUtility()
+	{
+		return receivedUtility;
+	}
+
+	public Bid getOffer()
+	{
+		return offer;
+	}
+}
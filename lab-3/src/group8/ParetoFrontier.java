@@ -0,0 +1,203 @@
+package group8;
+
+import java.util.Arrays;
+
+import genius.core.Bid;
+
+/**
+ * The Pareto frontier of our own utility against the predicted utility of the opponent.
+ * Both are additive over the issues, so the frontier is built with a dynamic program over
+ * the issues: after each issue, every bucket of partial own utility keeps only the partial bid
+ * with the highest predicted opponent utility. The frontier is recomputed lazily, only when
+ * the frequency table has recorded a new offer since the last computation.
+ * Own utilities are read from the {@link UtilityKernel}, and frontier bids are kept as their
+ * {@link BidCodec} codes, which are only decoded when offered.
+ */
+public class ParetoFrontier
+{
+	/** Resolution of the own utility buckets */
+	public static final int BUCKETS = 500;
+
+	private final ExtremeBidSolver extremeBidSolver;
+	private final FrequencyTable frequencyTable;
+	private final UtilityKernel utilityKernel;
+	private final BidCodec codec;
+	private final int noIssues;
+	private final int noWords;
+
+	// Dynamic program tables, reused between computations
+	private final int[][] parentBucket;
+	private final int[][] chosenOrdinal;
+	private double[] own = new double[BUCKETS + 1];
+	private double[] opponent = new double[BUCKETS + 1];
+	private double[] nextOwn = new double[BUCKETS + 1];
+	private double[] nextOpponent = new double[BUCKETS + 1];
+
+	// The frontier, by ascending own utility and so descending opponent utility
+	private double[] frontierOwn = new double[0];
+	private double[] frontierOpponent = new double[0];
+	private long[] frontierCodes = new long[0];
+	private int computedAtBids = -1;
+
+	public ParetoFrontier(ExtremeBidSolver extremeBidSolver, FrequencyTable frequencyTable, UtilityKernel utilityKernel)
+	{
+		this.extremeBidSolver = extremeBidSolver;
+		this.frequencyTable = frequencyTable;
+		this.utilityKernel = utilityKernel;
+		codec = utilityKernel.getCodec();
+		noIssues = frequencyTable.getNumberOfIssues();
+		noWords = codec.getNumberOfWords();
+		parentBucket = new int[noIssues][BUCKETS + 1];
+		chosenOrdinal = new int[noIssues][BUCKETS + 1];
+	}
+
+	/**
+	 * The frontier bid with the highest predicted opponent utility among those with an own
+	 * utility of at least the target. If no frontier bid reaches the target, our best bid is returned.
+	 * @param target The minimum own utility
+	 * @return A Pareto efficient bid above the target
+	 */
+	public Bid getOfferAboveTarget(double target)
+	{
+		int first = indexAboveTarget(target);
+		if (first == frontierOwn.length)
+			return extremeBidSolver.getMaxUtilityBid();
+
+		return codec.decode(frontierCodes, first * noWords);
+	}
+
+	/**
+	 * The option ordinals of the frontier bid {@link #getOfferAboveTarget(double)} would return.
+	 * @param target The minimum own utility
+	 * @return The ordinals by slot, or null if no frontier bid reaches the target
+	 */
+	public int[] getOrdinalsAboveTarget(double target)
+	{
+		int first = indexAboveTarget(target);
+		if (first == frontierOwn.length)
+			return null;
+
+		int[] ordinals = new int[noIssues];
+		codec.decode(frontierCodes, first * noWords, ordinals);
+		return ordinals;
+	}
+
+	public int size()
+	{
+		update();
+		return frontierOwn.length;
+	}
+
+	public double getOwnUtility(int index)
+	{
+		update();
+		return frontierOwn[index];
+	}
+
+	public double getOpponentUtility(int index)
+	{
+		update();
+		return frontierOpponent[index];
+	}
+
+	private int indexAboveTarget(double target)
+	{
+		update();
+		int first = Arrays.binarySearch(frontierOwn, target);
+		return first < 0 ? -first - 1 : first;
+	}
+
+	private void update()
+	{
+		if (computedAtBids == frequencyTable.getNoBids())
+			return;
+
+		double[] weights = frequencyTable.getNormalisedWeights();
+		Arrays.fill(opponent, Double.NEGATIVE_INFINITY);
+		own[0] = 0;
+		opponent[0] = 0;
+
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			Arrays.fill(nextOpponent, Double.NEGATIVE_INFINITY);
+			int noOptions = frequencyTable.getNumberOfValues(slot);
+			for (int bucket = 0; bucket <= BUCKETS; bucket++)
+			{
+				if (opponent[bucket] == Double.NEGATIVE_INFINITY)
+					continue;
+
+				for (int ordinal = 0; ordinal < noOptions; ordinal++)
+				{
+					double ownUtility = own[bucket] + utilityKernel.getContribution(slot, ordinal);
+					double opponentUtility = opponent[bucket] + weights[slot] * frequencyTable.getOptionValue(slot, ordinal);
+					int next = toBucket(ownUtility);
+					if (opponentUtility > nextOpponent[next]
+							|| (opponentUtility == nextOpponent[next] && ownUtility > nextOwn[next]))
+					{
+						nextOwn[next] = ownUtility;
+						nextOpponent[next] = opponentUtility;
+						parentBucket[slot][next] = bucket;
+						chosenOrdinal[slot][next] = ordinal;
+					}
+				}
+			}
+
+			double[] swap = own;
+			own = nextOwn;
+			nextOwn = swap;
+			swap = opponent;
+			opponent = nextOpponent;
+			nextOpponent = swap;
+		}
+
+		extractFrontier();
+		computedAtBids = frequencyTable.getNoBids();
+	}
+
+	/**
+	 * Walk the buckets from high to low own utility, keeping each bid that improves on the
+	 * opponent utility of every bid above it.
+	 */
+	private void extractFrontier()
+	{
+		int size = 0;
+		int[] frontierBuckets = new int[BUCKETS + 1];
+		double bestOpponent = Double.NEGATIVE_INFINITY;
+		for (int bucket = BUCKETS; bucket >= 0; bucket--)
+		{
+			if (opponent[bucket] > bestOpponent)
+			{
+				bestOpponent = opponent[bucket];
+				frontierBuckets[size++] = bucket;
+			}
+		}
+
+		frontierOwn = new double[size];
+		frontierOpponent = new double[size];
+		frontierCodes = new long[size * noWords];
+		int[] ordinals = new int[noIssues];
+		for (int i = 0; i < size; i++)
+		{
+			int bucket = frontierBuckets[size - 1 - i];
+			frontierOwn[i] = own[bucket];
+			frontierOpponent[i] = opponent[bucket];
+			reconstruct(bucket, ordinals);
+			codec.encode(ordinals, frontierCodes, i * noWords);
+		}
+	}
+
+	private void reconstruct(int bucket, int[] ordinals)
+	{
+		for (int slot = noIssues - 1; slot >= 0; slot--)
+		{
+			ordinals[slot] = chosenOrdinal[slot][bucket];
+			bucket = parentBucket[slot][bucket];
+		}
+	}
+
+	private static int toBucket(double utility)
+	{
+		int bucket = (int) (utility * BUCKETS);
+		return Math.max(0, Math.min(BUCKETS, bucket));
+	}
+}
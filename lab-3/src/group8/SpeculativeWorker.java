@@ -0,0 +1,110 @@
+package group8;
+
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Computes an answer of an agent ahead of time on a background thread, between its turns.
+ * Every request replaces the previous one: a request still waiting when a newer one arrives is skipped,
+ * so the worker never falls behind the negotiation. The result of the last finished computation is
+ * published as a snapshot, which must be immutable, since the agent reads it from its own thread.
+ * A computation that throws leaves the previous snapshot in place.
+ * @param <T> The type of the snapshot
+ */
+public class SpeculativeWorker<T>
+{
+	private final String name;
+	private final ExecutorService executor;
+	private final AtomicLong requests = new AtomicLong();
+	private Future<?> pending;
+	private volatile T snapshot;
+
+	/**
+	 * @param name The name of the agent, used in the thread name
+	 */
+	public SpeculativeWorker(String name)
+	{
+		this.name = name;
+		executor = Executors.newSingleThreadExecutor(this::newThread);
+	}
+
+	/**
+	 * Computes a new snapshot in the background, unless another request follows before the worker gets to it.
+	 * @param computation The computation of the snapshot
+	 */
+	public void request(Supplier<T> computation)
+	{
+		long request = requests.incrementAndGet();
+		try
+		{
+			pending = executor.submit(() -> compute(request, computation));
+		} catch (RejectedExecutionException e) {
+			// Closed, the agent computes its answers itself
+		}
+	}
+
+	/**
+	 * @return The last computed snapshot, or null if none has been computed yet
+	 */
+	public T getSnapshot()
+	{
+		return snapshot;
+	}
+
+	/**
+	 * Waits for the last requested computation to finish, for at most the timeout.
+	 * @param timeoutNanos The longest time to wait
+	 * @return The last computed snapshot, or null if none has been computed yet
+	 */
+	public T awaitSnapshot(long timeoutNanos)
+	{
+		if (pending != null)
+		{
+			try
+			{
+				pending.get(timeoutNanos, TimeUnit.NANOSECONDS);
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+			} catch (ExecutionException | CancellationException | TimeoutException e) {
+				// The snapshot of an earlier computation is returned
+			}
+		}
+		return snapshot;
+	}
+
+	/**
+	 * Stops the worker, dropping waiting requests.
+	 */
+	public void close()
+	{
+		executor.shutdownNow();
+	}
+
+	private void compute(long request, Supplier<T> computation)
+	{
+		if (requests.get() != request)
+			return;
+
+		try
+		{
+			snapshot = computation.get();
+		} catch (RuntimeException e) {
+			e.printStackTrace();
+		}
+	}
+
+	private Thread newThread(Runnable runnable)
+	{
+		Thread thread = new Thread(runnable, name + "-worker");
+		thread.setDaemon(true);
+		return thread;
+	}
+}
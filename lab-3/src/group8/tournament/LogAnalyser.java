@@ -0,0 +1,461 @@
+package group8.tournament;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Single pass analysis of a Genius tournament log, the semicolon separated log1.csv.
+ * The log is read into one reused byte buffer, and fields are parsed in place without creating a
+ * String per line, so memory stays constant however long the log is. Per agent it aggregates the
+ * utility, the distance of the outcome to the Pareto frontier and the Nash point, and the social
+ * welfare. For the sessions of the focus agent it streams the utility of the agent and that of every
+ * other party to a scatter file, with whether the outcome is Pareto optimal.
+ * Agents are named by their Agent column without the "@" suffix that numbers them in a tournament.
+ * Lines whose distances or social welfare are missing, such as sessions that failed, are skipped.
+ * Usage: java group8.tournament.LogAnalyser log1.csv [focus agent] [output directory]
+ */
+public class LogAnalyser
+{
+	private static final int INITIAL_BUFFER = 1 << 16;
+	private static final double[] POWERS_OF_TEN = {
+		1e0, 1e1, 1e2, 1e3, 1e4, 1e5, 1e6, 1e7, 1e8, 1e9, 1e10, 1e11,
+		1e12, 1e13, 1e14, 1e15, 1e16, 1e17, 1e18, 1e19, 1e20, 1e21, 1e22 };
+
+	/**
+	 * Totals for one agent over the sessions it took part in.
+	 */
+	public static class AgentSummary
+	{
+		private final byte[] key;
+		private final String name;
+		private long sessions = 0;
+		private long paretoOptimal = 0;
+		private double sumUtility = 0;
+		private double minUtility = Double.POSITIVE_INFINITY;
+		private double maxUtility = Double.NEGATIVE_INFINITY;
+		private double sumParetoDistance = 0;
+		private double sumNashDistance = 0;
+		private double sumSocialWelfare = 0;
+
+		private AgentSummary(byte[] key)
+		{
+			this.key = key;
+			this.name = new String(key, StandardCharsets.UTF_8);
+		}
+
+		private void add(double utility, double paretoDistance, double nashDistance, double socialWelfare)
+		{
+			sessions++;
+			if (paretoDistance == 0)
+				paretoOptimal++;
+			sumUtility += utility;
+			minUtility = Math.min(minUtility, utility);
+			maxUtility = Math.max(maxUtility, utility);
+			sumParetoDistance += paretoDistance;
+			sumNashDistance += nashDistance;
+			sumSocialWelfare += socialWelfare;
+		}
+
+		public String getName()
+		{
+			return name;
+		}
+
+		public long getSessions()
+		{
+			return sessions;
+		}
+
+		public double getMeanUtility()
+		{
+			return sumUtility / sessions;
+		}
+
+		public double getMinUtility()
+		{
+			return minUtility;
+		}
+
+		public double getMaxUtility()
+		{
+			return maxUtility;
+		}
+
+		public double getMeanParetoDistance()
+		{
+			return sumParetoDistance / sessions;
+		}
+
+		public double getMeanNashDistance()
+		{
+			return sumNashDistance / sessions;
+		}
+
+		public double getMeanSocialWelfare()
+		{
+			return sumSocialWelfare / sessions;
+		}
+
+		/**
+		 * @return The fraction of sessions that ended on the Pareto frontier
+		 */
+		public double getParetoRate()
+		{
+			return paretoOptimal / (double) sessions;
+		}
+	}
+
+	private final byte[] focus;
+	private final List<AgentSummary> summaries = new ArrayList<>();
+	private long noSessions = 0;
+	private long noSkipped = 0;
+
+	// The line being parsed, and the start and end of each of its fields
+	private byte[] buffer = new byte[INITIAL_BUFFER];
+	private int[] fieldStart = new int[64];
+	private int[] fieldEnd = new int[64];
+	private int noFields;
+
+	private int paretoColumn = -1;
+	private int nashColumn = -1;
+	private int welfareColumn = -1;
+	private int[] agentColumns;
+	private int[] utilityColumns;
+	/** The summary of the agent in each slot of the current line */
+	private AgentSummary[] lineAgents;
+	private double[] lineUtilities;
+
+	/**
+	 * @param focus The part of the agent name whose sessions go to the scatter file
+	 */
+	public LogAnalyser(String focus)
+	{
+		this.focus = focus.getBytes(StandardCharsets.UTF_8);
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: LogAnalyser log1.csv [focus agent] [output directory]");
+			System.exit(2);
+		}
+		File log = new File(args[0]);
+		String focus = args.length > 1 ? args[1] : "JohnyBlack";
+		File directory = args.length > 2 ? new File(args[2]) : log.getAbsoluteFile().getParentFile();
+		directory.mkdirs();
+
+		LogAnalyser analyser = new LogAnalyser(focus);
+		try (InputStream input = new FileInputStream(log);
+				Writer scatter = Files.newBufferedWriter(new File(directory, "scatter.csv").toPath(), StandardCharsets.UTF_8))
+		{
+			analyser.analyse(input, scatter);
+		}
+		try (BufferedWriter summary = Files.newBufferedWriter(new File(directory, "summary.csv").toPath(), StandardCharsets.UTF_8))
+		{
+			analyser.writeSummary(summary);
+		}
+		System.out.println(analyser.getNoSessions() + " sessions of " + analyser.getSummaries().size() + " agents, "
+				+ analyser.getNoSkipped() + " lines skipped");
+	}
+
+	/**
+	 * Reads the log and writes the scatter data of the focus agent, as rows of its utility, the utility
+	 * of another party and whether the outcome is Pareto optimal.
+	 */
+	public void analyse(InputStream input, Writer scatter) throws IOException
+	{
+		scatter.write("Own utility;Other utility;Pareto\n");
+
+		int start = 0;
+		int end = 0;
+		int searched = 0;
+		while (true)
+		{
+			int newline = -1;
+			for (int i = searched; i < end; i++)
+			{
+				if (buffer[i] == '\n')
+				{
+					newline = i;
+					break;
+				}
+			}
+
+			if (newline < 0)
+			{
+				// Move the partial line to the front, growing the buffer if the line fills it
+				int length = end - start;
+				if (start > 0)
+					System.arraycopy(buffer, start, buffer, 0, length);
+				else if (length == buffer.length)
+					buffer = Arrays.copyOf(buffer, buffer.length * 2);
+				start = 0;
+				end = length;
+				searched = length;
+				int read = input.read(buffer, end, buffer.length - end);
+				if (read < 0)
+				{
+					if (end > start)
+						parseLine(start, end, scatter);
+					return;
+				}
+				end += read;
+				continue;
+			}
+
+			parseLine(start, newline, scatter);
+			start = newline + 1;
+			searched = start;
+		}
+	}
+
+	private void parseLine(int start, int end, Writer scatter) throws IOException
+	{
+		if (end > start && buffer[end - 1] == '\r')
+			end--;
+		splitFields(start, end);
+
+		if (agentColumns == null)
+		{
+			if (isField(0, "sep="))
+				return;
+			readHeader();
+			return;
+		}
+
+		double paretoDistance = parseField(paretoColumn);
+		double nashDistance = parseField(nashColumn);
+		double socialWelfare = parseField(welfareColumn);
+		if (Double.isNaN(paretoDistance) || Double.isNaN(nashDistance) || Double.isNaN(socialWelfare))
+		{
+			noSkipped++;
+			return;
+		}
+
+		noSessions++;
+		int focusSlot = -1;
+		for (int slot = 0; slot < agentColumns.length; slot++)
+		{
+			lineAgents[slot] = null;
+			int column = agentColumns[slot];
+			if (column >= noFields || fieldEnd[column] == fieldStart[column])
+				continue;
+			lineUtilities[slot] = parseField(utilityColumns[slot]);
+			if (Double.isNaN(lineUtilities[slot]))
+				continue;
+			lineAgents[slot] = getSummary(column);
+			lineAgents[slot].add(lineUtilities[slot], paretoDistance, nashDistance, socialWelfare);
+			if (focusSlot < 0 && contains(column, focus))
+				focusSlot = slot;
+		}
+
+		if (focusSlot >= 0)
+		{
+			for (int slot = 0; slot < agentColumns.length; slot++)
+			{
+				if (slot == focusSlot || lineAgents[slot] == null)
+					continue;
+				scatter.write(Double.toString(lineUtilities[focusSlot]));
+				scatter.write(';');
+				scatter.write(Double.toString(lineUtilities[slot]));
+				scatter.write(paretoDistance == 0 ? ";1\n" : ";0\n");
+			}
+		}
+	}
+
+	private void readHeader()
+	{
+		List<Integer> agents = new ArrayList<>();
+		List<Integer> utilities = new ArrayList<>();
+		for (int i = 0; i < noFields; i++)
+		{
+			String name = new String(buffer, fieldStart[i], fieldEnd[i] - fieldStart[i], StandardCharsets.UTF_8).trim();
+			if (name.equals("Dist. to Pareto"))
+				paretoColumn = i;
+			else if (name.equals("Dist. to Nash"))
+				nashColumn = i;
+			else if (name.equals("Social Welfare"))
+				welfareColumn = i;
+			else if (name.startsWith("Agent "))
+				agents.add(i);
+			else if (name.startsWith("Utility "))
+				utilities.add(i);
+		}
+		if (paretoColumn < 0 || nashColumn < 0 || welfareColumn < 0 || agents.isEmpty() || agents.size() != utilities.size())
+			throw new IllegalArgumentException("Not a tournament log header");
+
+		agentColumns = new int[agents.size()];
+		utilityColumns = new int[agents.size()];
+		for (int slot = 0; slot < agentColumns.length; slot++)
+		{
+			agentColumns[slot] = agents.get(slot);
+			utilityColumns[slot] = utilities.get(slot);
+		}
+		lineAgents = new AgentSummary[agentColumns.length];
+		lineUtilities = new double[agentColumns.length];
+	}
+
+	private void splitFields(int start, int end)
+	{
+		noFields = 0;
+		int from = start;
+		for (int i = start; i <= end; i++)
+		{
+			if (i < end && buffer[i] != ';')
+				continue;
+			if (noFields == fieldStart.length)
+			{
+				fieldStart = Arrays.copyOf(fieldStart, noFields * 2);
+				fieldEnd = Arrays.copyOf(fieldEnd, noFields * 2);
+			}
+			fieldStart[noFields] = from;
+			fieldEnd[noFields++] = i;
+			from = i + 1;
+		}
+	}
+
+	/**
+	 * Looks up the summary of the agent in a column by its bytes up to the "@", only creating a key for
+	 * an agent not seen before.
+	 */
+	private AgentSummary getSummary(int column)
+	{
+		int start = fieldStart[column];
+		int end = start;
+		while (end < fieldEnd[column] && buffer[end] != '@')
+			end++;
+
+		for (AgentSummary summary : summaries)
+		{
+			byte[] key = summary.key;
+			if (key.length != end - start)
+				continue;
+			int i = 0;
+			while (i < key.length && key[i] == buffer[start + i])
+				i++;
+			if (i == key.length)
+				return summary;
+		}
+		AgentSummary summary = new AgentSummary(Arrays.copyOfRange(buffer, start, end));
+		summaries.add(summary);
+		return summary;
+	}
+
+	/**
+	 * Parses a plain decimal in place. Up to 15 significant digits and a power of ten up to 22 convert
+	 * exactly; anything else goes through {@link Double#parseDouble}.
+	 * @return The value, or NaN if the field is not a number
+	 */
+	private double parseField(int column)
+	{
+		if (column >= noFields)
+			return Double.NaN;
+		int i = fieldStart[column];
+		int end = fieldEnd[column];
+		while (i < end && buffer[i] == ' ')
+			i++;
+		while (end > i && buffer[end - 1] == ' ')
+			end--;
+
+		int from = i;
+		boolean negative = i < end && buffer[i] == '-';
+		if (negative)
+			i++;
+		long mantissa = 0;
+		int noDigits = 0;
+		int digits = 0;
+		int decimals = 0;
+		boolean point = false;
+		for (; i < end; i++)
+		{
+			byte b = buffer[i];
+			if (b >= '0' && b <= '9')
+			{
+				noDigits++;
+				if (digits > 0 || b != '0')
+					digits++;
+				mantissa = mantissa * 10 + (b - '0');
+				if (point)
+					decimals++;
+			}
+			else if (b == '.' && !point)
+				point = true;
+			else
+				break;
+		}
+
+		if (i < end || noDigits == 0 || digits > 15 || decimals >= POWERS_OF_TEN.length)
+		{
+			try
+			{
+				return Double.parseDouble(new String(buffer, from, end - from, StandardCharsets.US_ASCII));
+			}
+			catch (NumberFormatException e)
+			{
+				return Double.NaN;
+			}
+		}
+		double value = mantissa / POWERS_OF_TEN[decimals];
+		return negative ? -value : value;
+	}
+
+	private boolean isField(int column, String text)
+	{
+		byte[] bytes = text.getBytes(StandardCharsets.UTF_8);
+		return noFields > column && contains(column, bytes) && fieldEnd[column] - fieldStart[column] == bytes.length;
+	}
+
+	private boolean contains(int column, byte[] part)
+	{
+		int last = fieldEnd[column] - part.length;
+		for (int start = fieldStart[column]; start <= last; start++)
+		{
+			int i = 0;
+			while (i < part.length && buffer[start + i] == part[i])
+				i++;
+			if (i == part.length)
+				return true;
+		}
+		return false;
+	}
+
+	public void writeSummary(Writer writer) throws IOException
+	{
+		writer.write("Agent;Sessions;Mean utility;Min utility;Max utility;Pareto rate;Dist. to Pareto;Dist. to Nash;Social Welfare\n");
+		for (AgentSummary summary : summaries)
+		{
+			writer.write(summary.getName() + ";" + summary.getSessions() + ";" + summary.getMeanUtility() + ";"
+					+ summary.getMinUtility() + ";" + summary.getMaxUtility() + ";" + summary.getParetoRate() + ";"
+					+ summary.getMeanParetoDistance() + ";" + summary.getMeanNashDistance() + ";"
+					+ summary.getMeanSocialWelfare() + "\n");
+		}
+	}
+
+	public List<AgentSummary> getSummaries()
+	{
+		return summaries;
+	}
+
+	public long getNoSessions()
+	{
+		return noSessions;
+	}
+
+	/**
+	 * @return The number of lines skipped for missing values
+	 */
+	public long getNoSkipped()
+	{
+		return noSkipped;
+	}
+}
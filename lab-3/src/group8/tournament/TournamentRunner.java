@@ -0,0 +1,237 @@
+package group8.tournament;
+
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.StringJoiner;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.xml.transform.OutputKeys;
+import javax.xml.transform.Transformer;
+import javax.xml.transform.TransformerException;
+import javax.xml.transform.TransformerFactory;
+import javax.xml.transform.dom.DOMSource;
+import javax.xml.transform.stream.StreamResult;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.NodeList;
+
+/**
+ * Runs a multilateralTournamentsConfiguration headless on all cores.
+ * The configuration is split by {@link TournamentSplitter}, and every part runs through the Genius
+ * command line runner in a JVM of its own, so parties of different sessions share no static state.
+ * Every part runs in a directory of its own, so the files parties write relative to the working
+ * directory, such as their logs and persistent summaries, do not collide between parts.
+ * A tournament that uses persistent data stays whole, and runs in parallel with the other parts.
+ * The logs of the parts are merged in tournament order into a single csv with one header, in the
+ * format Genius writes, so it can be read by the evaluation scripts as log1.csv.
+ * Usage: java -cp genius-9.1.11.jar:&lt;agents&gt; group8.tournament.TournamentRunner config.xml [log.csv] [workers]
+ * Profile urls and the class path are resolved against the working directory, as in Genius, before
+ * the parts run in their own directories.
+ */
+public class TournamentRunner
+{
+	/** The Genius command line runner, which reads the configuration and the log file from standard input */
+	public static final String RUNNER_CLASS = "genius.cli.Runner";
+	private static final String HEADER_START = "Run time";
+
+	private final File logFile;
+	private final File sessionDirectory;
+	private final int workers;
+
+	/**
+	 * @param logFile The merged log to write
+	 * @param workers The number of sessions to run at once
+	 */
+	public TournamentRunner(File logFile, int workers)
+	{
+		this.logFile = logFile;
+		this.sessionDirectory = new File(logFile.getAbsoluteFile().getParentFile(), "sessions");
+		this.workers = workers;
+	}
+
+	public static void main(String[] args) throws Exception
+	{
+		if (args.length < 1)
+		{
+			System.err.println("Usage: TournamentRunner config.xml [log.csv] [workers]");
+			System.exit(2);
+		}
+		File logFile = new File(args.length > 1 ? args[1] : "log/log1.csv");
+		int workers = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+		List<Document> sessions = TournamentSplitter.split(new File(args[0]));
+		int failures = new TournamentRunner(logFile, workers).run(sessions);
+		System.exit(failures == 0 ? 0 : 1);
+	}
+
+	/**
+	 * Runs the configurations and merges their logs.
+	 * @param sessions Configurations from {@link TournamentSplitter}
+	 * @return The number of configurations whose runner failed
+	 */
+	public int run(List<Document> sessions) throws IOException, InterruptedException, TransformerException
+	{
+		for (int job = 0; job < sessions.size(); job++)
+		{
+			File directory = getJobDirectory(job);
+			if (directory.isDirectory())
+			{
+				for (File file : directory.listFiles())
+					file.delete();
+			}
+			directory.mkdirs();
+			resolveProfiles(sessions.get(job));
+			write(sessions.get(job), new File(directory, "config.xml"));
+		}
+
+		ExecutorService pool = Executors.newFixedThreadPool(Math.max(1, workers));
+		List<Future<Integer>> exitCodes = new ArrayList<>();
+		for (int job = 0; job < sessions.size(); job++)
+		{
+			final int current = job;
+			exitCodes.add(pool.submit(() -> runJob(current)));
+		}
+		pool.shutdown();
+
+		int failures = 0;
+		for (int job = 0; job < sessions.size(); job++)
+		{
+			int exitCode;
+			try
+			{
+				exitCode = exitCodes.get(job).get();
+			}
+			catch (ExecutionException e)
+			{
+				e.getCause().printStackTrace();
+				exitCode = -1;
+			}
+			if (exitCode != 0)
+			{
+				failures++;
+				System.err.println("Session " + (job + 1) + " failed, see " + new File(getJobDirectory(job), "output.txt"));
+			}
+			else
+				System.out.println("Session " + (job + 1) + " of " + sessions.size() + " done");
+		}
+
+		merge(sessions.size());
+		return failures;
+	}
+
+	private int runJob(int job) throws IOException, InterruptedException
+	{
+		File directory = getJobDirectory(job).getAbsoluteFile();
+		String config = new File(directory, "config.xml").getPath();
+		String log = new File(directory, "log").getPath();
+		String java = new File(new File(System.getProperty("java.home"), "bin"), "java").getPath();
+
+		ProcessBuilder builder = new ProcessBuilder(java, "-cp", getAbsoluteClassPath(), RUNNER_CLASS);
+		builder.directory(directory);
+		builder.redirectErrorStream(true);
+		builder.redirectOutput(new File(directory, "output.txt"));
+		Process process = builder.start();
+
+		try (Writer input = new OutputStreamWriter(process.getOutputStream(), StandardCharsets.UTF_8))
+		{
+			input.write(config + System.lineSeparator() + log + System.lineSeparator());
+		}
+		return process.waitFor();
+	}
+
+	/**
+	 * Concatenates the csv logs of the jobs, keeping the lines up to the header of the first log only.
+	 */
+	private void merge(int noJobs) throws IOException
+	{
+		File directory = logFile.getAbsoluteFile().getParentFile();
+		if (directory != null)
+			directory.mkdirs();
+
+		try (BufferedWriter writer = Files.newBufferedWriter(logFile.toPath(), StandardCharsets.UTF_8))
+		{
+			boolean headerWritten = false;
+			for (int job = 0; job < noJobs; job++)
+			{
+				File[] logs = getJobDirectory(job).listFiles((dir, name) -> name.endsWith(".csv"));
+				if (logs == null)
+					continue;
+				Arrays.sort(logs);
+				for (File log : logs)
+				{
+					List<String> lines = Files.readAllLines(log.toPath(), StandardCharsets.UTF_8);
+					int headerEnd = getHeaderEnd(lines);
+					for (int i = headerWritten ? headerEnd : 0; i < lines.size(); i++)
+					{
+						writer.write(lines.get(i));
+						writer.newLine();
+					}
+					headerWritten |= headerEnd > 0;
+				}
+			}
+		}
+	}
+
+	/**
+	 * @return The index of the line after the column header, or 0 if there is none
+	 */
+	private static int getHeaderEnd(List<String> lines)
+	{
+		for (int i = 0; i < lines.size(); i++)
+		{
+			if (lines.get(i).startsWith(HEADER_START))
+				return i + 1;
+		}
+		return 0;
+	}
+
+	/**
+	 * Makes the file urls of the profiles absolute, so they still resolve from the directory of the job.
+	 */
+	private static void resolveProfiles(Document session)
+	{
+		NodeList items = session.getElementsByTagName("item");
+		for (int i = 0; i < items.getLength(); i++)
+		{
+			Element item = (Element) items.item(i);
+			String url = item.getAttribute("url");
+			if (url.startsWith("file:") && !new File(url.substring("file:".length())).isAbsolute())
+				item.setAttribute("url", "file:" + new File(url.substring("file:".length())).getAbsolutePath());
+		}
+	}
+
+	/**
+	 * @return The class path of this JVM with every entry made absolute
+	 */
+	private static String getAbsoluteClassPath()
+	{
+		StringJoiner classPath = new StringJoiner(File.pathSeparator);
+		for (String entry : System.getProperty("java.class.path").split(File.pathSeparator))
+			classPath.add(new File(entry.isEmpty() ? "." : entry).getAbsolutePath());
+		return classPath.toString();
+	}
+
+	private File getJobDirectory(int job)
+	{
+		return new File(sessionDirectory, String.format("%05d", job + 1));
+	}
+
+	private static void write(Document document, File file) throws TransformerException
+	{
+		Transformer transformer = TransformerFactory.newInstance().newTransformer();
+		transformer.setOutputProperty(OutputKeys.INDENT, "yes");
+		transformer.transform(new DOMSource(document), new StreamResult(file));
+	}
+}
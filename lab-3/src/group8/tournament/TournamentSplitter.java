@@ -0,0 +1,197 @@
+package group8.tournament;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+
+import javax.xml.parsers.DocumentBuilder;
+import javax.xml.parsers.DocumentBuilderFactory;
+import javax.xml.parsers.ParserConfigurationException;
+
+import org.w3c.dom.Document;
+import org.w3c.dom.Element;
+import org.w3c.dom.Node;
+import org.w3c.dom.NodeList;
+import org.xml.sax.SAXException;
+
+/**
+ * Splits a multilateralTournamentsConfiguration into independent configurations that together run
+ * the same sessions.
+ * Genius runs every combination of parties, with or without repetition, against every assignment
+ * of distinct profiles to them, as many times as the repeats. Each configuration produced here has
+ * one repeat of one combination of parties and one set of profiles, so Genius only assigns that set
+ * of profiles to those parties in every order. Everything else in the tournament element, such as
+ * the deadline, protocol and party properties, is copied as is.
+ * Genius only keeps persistent data within one tournament run, so a tournament that uses persistent
+ * data is not split, and becomes a single configuration of its own.
+ */
+public class TournamentSplitter
+{
+	private static final String ROOT = "multilateralTournamentsConfiguration";
+
+	/**
+	 * @param configFile A multilateralTournamentsConfiguration
+	 * @return A configuration per repeat, combination of parties and set of profiles, in tournament order,
+	 * or a single one for a tournament that uses persistent data
+	 */
+	public static List<Document> split(File configFile) throws ParserConfigurationException, SAXException, IOException
+	{
+		DocumentBuilder builder = DocumentBuilderFactory.newInstance().newDocumentBuilder();
+		Document config = builder.parse(configFile);
+		removeWhitespace(config.getDocumentElement());
+
+		List<Document> sessions = new ArrayList<>();
+		NodeList tournaments = config.getElementsByTagName("tournament");
+		for (int t = 0; t < tournaments.getLength(); t++)
+		{
+			Element tournament = (Element) tournaments.item(t);
+			if (usesPersistentData(tournament))
+			{
+				sessions.add(newSession(builder, tournament));
+				continue;
+			}
+
+			List<Element> parties = getChildren(getChild(tournament, "partyRepItems"));
+			List<Element> profiles = getChildren(getChild(tournament, "partyProfileItems"));
+			int noParties = Integer.parseInt(getText(tournament, "numberOfPartiesPerSession"));
+			int repeats = Integer.parseInt(getText(tournament, "repeats"));
+			boolean repetitionAllowed = Boolean.parseBoolean(getText(tournament, "repetitionAllowed"));
+			if (profiles.size() < noParties)
+				throw new IllegalArgumentException("Tournament " + (t + 1) + " has fewer profiles than parties per session");
+
+			List<int[]> partyCombinations = getCombinations(parties.size(), noParties, repetitionAllowed);
+			List<int[]> profileCombinations = getCombinations(profiles.size(), noParties, false);
+			for (int repeat = 0; repeat < repeats; repeat++)
+			{
+				for (int[] partyCombination : partyCombinations)
+				{
+					for (int[] profileCombination : profileCombinations)
+					{
+						Document session = newSession(builder, tournament);
+						Element sessionTournament = (Element) session.getElementsByTagName("tournament").item(0);
+
+						// A party that repeats is listed once per repetition, so Genius picks each item once
+						replaceChildren(session, getChild(sessionTournament, "partyRepItems"), parties, partyCombination);
+						replaceChildren(session, getChild(sessionTournament, "partyProfileItems"), profiles, profileCombination);
+						setText(sessionTournament, "repeats", "1");
+						setText(sessionTournament, "repetitionAllowed", "false");
+						sessions.add(session);
+					}
+				}
+			}
+		}
+		return sessions;
+	}
+
+	/**
+	 * @return A configuration of a copy of the tournament alone
+	 */
+	private static Document newSession(DocumentBuilder builder, Element tournament)
+	{
+		Document session = builder.newDocument();
+		session.setXmlStandalone(true);
+		Element root = session.createElement(ROOT);
+		Element sessionTournaments = session.createElement("tournaments");
+		session.appendChild(root);
+		root.appendChild(sessionTournaments);
+		sessionTournaments.appendChild(session.importNode(tournament, true));
+		return session;
+	}
+
+	/**
+	 * Sessions that use persistent data see the sessions before them in the same tournament run.
+	 */
+	static boolean usesPersistentData(Element tournament)
+	{
+		NodeList types = tournament.getElementsByTagName("persistentDataType");
+		for (int i = 0; i < types.getLength(); i++)
+		{
+			if (!"DISABLED".equals(types.item(i).getTextContent().trim()))
+				return true;
+		}
+		return false;
+	}
+
+	/**
+	 * @return The k-combinations of the indices 0 to n - 1 in lexicographic order, as non-decreasing
+	 * index arrays if repetition is allowed and increasing ones otherwise
+	 */
+	static List<int[]> getCombinations(int n, int k, boolean repetition)
+	{
+		List<int[]> combinations = new ArrayList<>();
+		int[] combination = new int[k];
+		for (int i = 0; i < k; i++)
+			combination[i] = repetition ? 0 : i;
+		if (k > 0 && combination[k - 1] >= n)
+			return combinations;
+
+		while (true)
+		{
+			combinations.add(combination.clone());
+
+			// Advance the rightmost index that is not yet at its maximum
+			int i = k - 1;
+			while (i >= 0 && combination[i] == (repetition ? n - 1 : n - k + i))
+				i--;
+			if (i < 0)
+				return combinations;
+			combination[i]++;
+			for (int j = i + 1; j < k; j++)
+				combination[j] = repetition ? combination[i] : combination[j - 1] + 1;
+		}
+	}
+
+	private static void removeWhitespace(Node parent)
+	{
+		Node node = parent.getFirstChild();
+		while (node != null)
+		{
+			Node next = node.getNextSibling();
+			if (node.getNodeType() == Node.TEXT_NODE && node.getTextContent().trim().isEmpty())
+				parent.removeChild(node);
+			else
+				removeWhitespace(node);
+			node = next;
+		}
+	}
+
+	private static void replaceChildren(Document session, Element parent, List<Element> items, int[] selection)
+	{
+		while (parent.getFirstChild() != null)
+			parent.removeChild(parent.getFirstChild());
+		for (int index : selection)
+			parent.appendChild(session.importNode(items.get(index), true));
+	}
+
+	private static Element getChild(Element parent, String name)
+	{
+		for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling())
+		{
+			if (node instanceof Element && node.getNodeName().equals(name))
+				return (Element) node;
+		}
+		throw new IllegalArgumentException("Tournament without " + name);
+	}
+
+	private static List<Element> getChildren(Element parent)
+	{
+		List<Element> children = new ArrayList<>();
+		for (Node node = parent.getFirstChild(); node != null; node = node.getNextSibling())
+		{
+			if (node instanceof Element)
+				children.add((Element) node);
+		}
+		return children;
+	}
+
+	private static String getText(Element parent, String name)
+	{
+		return getChild(parent, name).getTextContent().trim();
+	}
+
+	private static void setText(Element parent, String name, String text)
+	{
+		getChild(parent, name).setTextContent(text);
+	}
+}
@@ -0,0 +1,265 @@
+package group8;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+import genius.core.Bid;
+import genius.core.uncertainty.BidRanking;
+import genius.core.uncertainty.User;
+import genius.core.uncertainty.UserModel;
+import genius.core.utility.AbstractUtilitySpace;
+
+/**
+ * Decides whether a bid ranks within a threshold, eliciting its rank from the user only when it pays off.
+ * The rank of an unranked bid is first estimated from the estimated utility space, by where its
+ * utility falls among the estimated utilities of the ranked bids. Elicitation is skipped when the
+ * estimate is further from the threshold than the error it makes on bids it was not fitted to, or
+ * when the cost would exceed the elicitation budget. That error is first calibrated by fitting an
+ * estimate without every {@value #HOLD_OUT_EVERY}th ranked bid and ranking the left out bids, and
+ * then updated with every elicited bid. The margin never falls below {@value #MIN_MARGIN}.
+ * Ranks are expressed as the fraction of ranked bids at least as good as the bid, close to 0 for the best bids.
+ */
+public class ElicitationPlanner
+{
+	/** Every this many ranked bids, one is left out of the calibration fit */
+	public static final int HOLD_OUT_EVERY = 5;
+	/** The smallest margin, in fractions of the ranking */
+	public static final double MIN_MARGIN = 0.05;
+	/** The most estimated utilities remembered, the least recently used are forgotten first */
+	private static final int MAX_ESTIMATES = 10000;
+
+	private final User user;
+	private final RankingIndex rankingIndex;
+	private final AbstractUtilitySpace estimate;
+	private final double elicitationCost;
+	private final double budget;
+	private UserModel userModel;
+
+	/** Estimated utilities of the ranked bids, ascending */
+	private double[] rankedEstimates;
+	private int noRanked;
+	/** Estimated utility of the bids seen most recently */
+	private final Map<Bid, Double> estimates = new LinkedHashMap<Bid, Double>(16, 0.75f, true)
+	{
+		@Override
+		protected boolean removeEldestEntry(Map.Entry<Bid, Double> eldest)
+		{
+			return size() > MAX_ESTIMATES;
+		}
+	};
+	/** Sum and count of the absolute rank errors of estimates on bids they were not fitted to */
+	private double errorSum;
+	private int errorCount;
+
+	private double spent = 0;
+	private int noElicited = 0;
+	private int noAvoided = 0;
+	private int noOverBudget = 0;
+
+	/**
+	 * @param user The user to elicit ranks from
+	 * @param userModel The initial user model
+	 * @param rankingIndex The index over the ranking of the user model, kept up to date by the planner
+	 * @param estimate The estimated utility space of the user model
+	 * @param budget The total elicitation cost the planner may spend
+	 */
+	public ElicitationPlanner(User user, UserModel userModel, RankingIndex rankingIndex, AbstractUtilitySpace estimate, double budget)
+	{
+		this.user = user;
+		this.userModel = userModel;
+		this.rankingIndex = rankingIndex;
+		this.estimate = estimate;
+		this.elicitationCost = user.getElicitationCost();
+		this.budget = budget;
+
+		List<Bid> bidOrder = userModel.getBidRanking().getBidOrder();
+		noRanked = bidOrder.size();
+		rankedEstimates = new double[Math.max(16, noRanked * 2)];
+		for (int i = 0; i < noRanked; i++)
+			rankedEstimates[i] = getEstimate(bidOrder.get(i));
+		Arrays.sort(rankedEstimates, 0, noRanked);
+
+		calibrate(userModel.getBidRanking());
+	}
+
+	/**
+	 * Fits an estimate on the ranking without every {@value #HOLD_OUT_EVERY}th bid, and records the rank
+	 * errors it makes on the bids left out. The worst and best bids always stay in, since they anchor the
+	 * ranking. Too short a ranking is not calibrated, leaving the margin at its widest until bids are elicited.
+	 */
+	private void calibrate(BidRanking bidRanking)
+	{
+		List<Bid> bidOrder = bidRanking.getBidOrder();
+		int noBids = bidOrder.size();
+		if (noBids < 2 * HOLD_OUT_EVERY)
+			return;
+
+		List<Bid> fitted = new ArrayList<>(noBids);
+		List<Integer> heldOut = new ArrayList<>(noBids / HOLD_OUT_EVERY);
+		for (int i = 0; i < noBids; i++)
+		{
+			if (i % HOLD_OUT_EVERY == HOLD_OUT_EVERY / 2 && i > 0 && i < noBids - 1)
+				heldOut.add(i);
+			else
+				fitted.add(bidOrder.get(i));
+		}
+		AbstractUtilitySpace fit = new UtilitySpaceEstimator(
+				new BidRanking(fitted, bidRanking.getLowUtility(), bidRanking.getHighUtility())).getUtilitySpace();
+
+		double[] fittedEstimates = new double[fitted.size()];
+		for (int i = 0; i < fittedEstimates.length; i++)
+			fittedEstimates[i] = fit.getUtility(fitted.get(i));
+		Arrays.sort(fittedEstimates);
+		for (int i : heldOut)
+		{
+			int firstAtLeast = Arrays.binarySearch(fittedEstimates, fit.getUtility(bidOrder.get(i)));
+			if (firstAtLeast < 0)
+				firstAtLeast = -firstAtLeast - 1;
+			double estimatedRank = Math.max(1, fittedEstimates.length - firstAtLeast) / (double) fittedEstimates.length;
+			recordError(estimatedRank, (noBids - i) / (double) noBids);
+		}
+	}
+
+	/**
+	 * Whether the bid ranks within the threshold, eliciting its rank if it is unknown, the estimate
+	 * is not confidently on one side of the threshold, and the budget allows it.
+	 * @param bid A bid
+	 * @param threshold The fraction of best ranked bids that are acceptable
+	 * @return True if the bid is ranked or estimated within the threshold
+	 */
+	public boolean isRankAboveThreshold(Bid bid, double threshold)
+	{
+		if (!rankingIndex.contains(bid))
+		{
+			double estimatedRank = getEstimatedRank(bid);
+			if (Math.abs(estimatedRank - threshold) > getMargin())
+			{
+				noAvoided++;
+				return estimatedRank <= threshold;
+			}
+			if (spent + elicitationCost > budget)
+			{
+				noOverBudget++;
+				return estimatedRank <= threshold;
+			}
+			elicit(bid, estimatedRank);
+		}
+
+		int noRanks = rankingIndex.size();
+		int rank = noRanks - rankingIndex.indexOf(bid); // Highest index is ranked best
+		return rank <= noRanks * threshold;
+	}
+
+	/**
+	 * The error estimates make on the ranks of bids they were not fitted to, on average, but at least
+	 * {@value #MIN_MARGIN}. Estimates further than this from the threshold are trusted without elicitation.
+	 */
+	public double getMargin()
+	{
+		return errorCount == 0 ? 1 : Math.max(MIN_MARGIN, errorSum / errorCount);
+	}
+
+	public UserModel getUserModel()
+	{
+		return userModel;
+	}
+
+	public double getSpent()
+	{
+		return spent;
+	}
+
+	public int getNoElicited()
+	{
+		return noElicited;
+	}
+
+	/**
+	 * @return The number of elicitations skipped because the estimate was confident
+	 */
+	public int getNoAvoided()
+	{
+		return noAvoided;
+	}
+
+	/**
+	 * @return The number of elicitations skipped because the budget was spent
+	 */
+	public int getNoOverBudget()
+	{
+		return noOverBudget;
+	}
+
+	@Override
+	public String toString()
+	{
+		return "Elicited " + noElicited + " bids for " + spent + ", avoided " + noAvoided
+				+ " confidently and " + noOverBudget + " over budget, margin " + getMargin();
+	}
+
+	private void elicit(Bid bid, double estimatedRank)
+	{
+		userModel = user.elicitRank(bid, userModel);
+		rankingIndex.update(userModel.getBidRanking());
+		spent += elicitationCost;
+		noElicited++;
+
+		insertRankedEstimate(getEstimate(bid));
+		recordError(estimatedRank, rankingIndex.getPercentile(bid));
+	}
+
+	/**
+	 * @return The fraction of ranked bids with an estimated utility at least that of the bid
+	 */
+	private double getEstimatedRank(Bid bid)
+	{
+		int firstAtLeast = lowerBound(getEstimate(bid));
+		return Math.max(1, noRanked - firstAtLeast) / (double) Math.max(1, noRanked);
+	}
+
+	private double getEstimate(Bid bid)
+	{
+		Double utility = estimates.get(bid);
+		if (utility == null)
+		{
+			utility = estimate.getUtility(bid);
+			estimates.put(bid, utility);
+		}
+		return utility;
+	}
+
+	private void insertRankedEstimate(double utility)
+	{
+		if (noRanked == rankedEstimates.length)
+			rankedEstimates = Arrays.copyOf(rankedEstimates, noRanked * 2);
+
+		int position = lowerBound(utility);
+		System.arraycopy(rankedEstimates, position, rankedEstimates, position + 1, noRanked - position);
+		rankedEstimates[position] = utility;
+		noRanked++;
+	}
+
+	private int lowerBound(double utility)
+	{
+		int low = 0;
+		int high = noRanked;
+		while (low < high)
+		{
+			int mid = (low + high) >>> 1;
+			if (rankedEstimates[mid] < utility)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private void recordError(double estimatedRank, double rank)
+	{
+		errorSum += Math.abs(estimatedRank - rank);
+		errorCount++;
+	}
+}
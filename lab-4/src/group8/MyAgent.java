@@ -4,14 +4,12 @@ import java.util.*;
 
 import genius.core.AgentID;
 import genius.core.Bid;
-import genius.core.Domain;
 import genius.core.actions.Accept;
 import genius.core.actions.Action;
 import genius.core.actions.EndNegotiation;
 import genius.core.actions.Offer;
 import genius.core.issue.Issue;
 import genius.core.issue.IssueDiscrete;
-import genius.core.issue.Objective;
 import genius.core.issue.ValueDiscrete;
 import genius.core.parties.AbstractNegotiationParty;
 import genius.core.parties.NegotiationInfo;
@@ -20,7 +18,6 @@ import genius.core.uncertainty.BidRanking;
 import genius.core.uncertainty.UserModel;
 import genius.core.utility.AbstractUtilitySpace;
 import genius.core.utility.AdditiveUtilitySpace;
-import genius.core.utility.Evaluator;
 import genius.core.utility.EvaluatorDiscrete;
 
 /**
@@ -30,11 +27,17 @@ import genius.core.utility.EvaluatorDiscrete;
  */
 public class MyAgent extends AbstractNegotiationParty
 {
+	/** Total elicitation cost the agent is willing to spend in a session */
+	private static final double ELICITATION_BUDGET = 0.1;
 	private static double rankThreshold;
 	private Bid lastOffer;
-	private HashMap<Integer, HashMap<String, Integer>> frequencyTable = new HashMap<>();
-	private int noBids = 0;
+	private FrequencyTable frequencyTable;
 	private AdditiveUtilitySpace additiveUtilitySpace;
+	private AgentLogger log;
+	private BidCodec bidCodec;
+	private RankingIndex rankingIndex;
+	private ElicitationPlanner elicitationPlanner;
+	private TurnLatency turnLatency;
 
 	/**
 	 * Initializes a new instance of the agent.
@@ -43,51 +46,34 @@ public class MyAgent extends AbstractNegotiationParty
 	public void init(NegotiationInfo info) 
 	{
 		super.init(info);
+		log = new AgentLogger(getClass().getSimpleName() + "-" + info.getAgentID());
 		if (hasPreferenceUncertainty()) {
 			UserModel userModel = info.getUserModel();
 			BidRanking bidRanking = userModel.getBidRanking();
-			System.out.println("HAS PREFERENCE UNCERTAINTY!!!");
-			System.out.println("Agent ID: " + info.getAgentID());
-			System.out.println("No. of possible bids in domain: " + userModel.getDomain().getNumberOfPossibleBids());
-			System.out.println("No. of bids in preference ranking: " + bidRanking.getSize());
-			System.out.println("Elicitation cost: " + info.getUser().getElicitationCost());
-			System.out.println("Lowest utility bid: " + bidRanking.getMinimalBid());
-			System.out.println("Highest utility bid: " + bidRanking.getMaximalBid());
-			System.out.println("5th bid in ranking list: " + bidRanking.getBidOrder().get(4));
+			log.info(() -> "HAS PREFERENCE UNCERTAINTY!!!");
+			log.info(() -> "Agent ID: " + info.getAgentID());
+			log.info(() -> "No. of possible bids in domain: " + userModel.getDomain().getNumberOfPossibleBids());
+			log.info(() -> "No. of bids in preference ranking: " + bidRanking.getSize());
+			log.info(() -> "Elicitation cost: " + info.getUser().getElicitationCost());
+			log.info(() -> "Lowest utility bid: " + bidRanking.getMinimalBid());
+			log.info(() -> "Highest utility bid: " + bidRanking.getMaximalBid());
+			log.info(() -> "5th bid in ranking list: " + bidRanking.getBidOrder().get(4));
+			bidCodec = new BidCodec(userModel.getDomain());
+			rankingIndex = new RankingIndex(bidRanking, bidCodec);
+			elicitationPlanner = new ElicitationPlanner(user, userModel, rankingIndex, utilitySpace, ELICITATION_BUDGET);
+			log.info(() -> "Elicitation margin: " + elicitationPlanner.getMargin());
 		}
 
 		AbstractUtilitySpace utilitySpace = info.getUtilitySpace();
 		additiveUtilitySpace = (AdditiveUtilitySpace) utilitySpace;
 
 		List<Issue> issues = additiveUtilitySpace.getDomain().getIssues();
+		frequencyTable = new FrequencyTable(issues);
 
-		for (Issue issue : issues) {
-			int issueNumber = issue.getNumber();
-			System.out.println(">> " + issue.getName() + " weight: " + additiveUtilitySpace.getWeight(issueNumber));
-
-			// Assuming that issues are discrete only
-			IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-			EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issueNumber);
-
-			HashMap<String, Integer> issueHashMap = new HashMap<>();
-
-			for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
-				String value = valueDiscrete.getValue();
-				issueHashMap.put(value, 0);
-				System.out.println(value);
-				System.out.println("Evaluation(getValue): " + evaluatorDiscrete.getValue(valueDiscrete));
-				try
-				{
-					System.out.println("Evaluation(getEvaluation): " + evaluatorDiscrete.getEvaluation(valueDiscrete));
-				} catch (Exception e) {
-					e.printStackTrace();
-				}
-			}
-
-			frequencyTable.put(issueNumber, issueHashMap);
-
-			rankThreshold = 0;
-		}
+		if (log.isEnabled(AgentLogger.Level.DEBUG))
+			logUtilitySpace(additiveUtilitySpace);
+		rankThreshold = 0;
+		turnLatency = new TurnLatency();
 	}
 
 	/**
@@ -97,72 +83,60 @@ public class MyAgent extends AbstractNegotiationParty
 	@Override
 	public Action chooseAction(List<Class<? extends Action>> possibleActions) 
 	{
-		// Check for acceptance if we have received an offer
-		if (lastOffer != null)
+		turnLatency.startTurn();
+		try
 		{
-			rankThreshold = timeline.getTime();
-			System.out.println("Current threshold: " + rankThreshold);
-			System.out.println();
-			if (timeline.getTime() >= 0.99)
+			// Check for acceptance if we have received an offer
+			if (lastOffer != null)
 			{
-				if (isRankAboveThreshold(lastOffer))
+				rankThreshold = timeline.getTime();
+				log.debug(() -> "Current threshold: " + rankThreshold);
+				if (timeline.getTime() >= 0.99)
+				{
+					if (isRankAboveThreshold(lastOffer))
+						return new Accept(getPartyId(), lastOffer);
+					else
+						return new EndNegotiation(getPartyId());
+				}
+				else if (isRankAboveThreshold(lastOffer))
+				{
 					return new Accept(getPartyId(), lastOffer);
-				else
-					return new EndNegotiation(getPartyId());
-			}
-			else if (isRankAboveThreshold(lastOffer))
-			{
-				return new Accept(getPartyId(), lastOffer);
+				}
 			}
-		}
 
-		// Otherwise, send out a random offer above the target utility 
-		return new Offer(getPartyId(), getRandomBidAboveThreshold());
+			// Otherwise, send out a random offer above the target utility 
+			return new Offer(getPartyId(), rankingIndex.get(getRandomIndexAboveThreshold()));
+		}
+		finally
+		{
+			long latency = turnLatency.endTurn();
+			if (turnLatency.isOverSlo(latency))
+				log.warn(() -> "Turn took " + latency / 1e6 + " ms");
+		}
 	}
 
 	/**
 	 * Check if the rank of offer is above the threshold.
-	 * Elicit the offer if needed
+	 * Elicit the offer if needed and the estimated rank is not confidently on one side of the threshold
 	 * @param bid
 	 * @return
 	 */
 	private boolean isRankAboveThreshold(Bid bid) {
-		// Check if bid is in current ranking
-		BidRanking bidRanking = userModel.getBidRanking();
-		List<Bid> bidOrder = bidRanking.getBidOrder();
-		if (bidOrder.contains(bid)) {
-			// True if above rank, false otherwise
-			int noRanks = bidRanking.getSize();
-			System.out.println("No. of ranks: " + noRanks);
-			int rank = noRanks - bidRanking.indexOf(bid); // Highest index is ranked best
-			System.out.println("Rank of bid: " + rank);
-			boolean result = rank <= (noRanks * rankThreshold);
-			System.out.println("Within threshold? " + result);
-			return result;
-		}
-
-		// Elicit the bid rank from the user
-		userModel = user.elicitRank(bid, userModel);
-		bidRanking = userModel.getBidRanking();
-		int noRanks = bidRanking.getSize();
-		System.out.println("No. of ranks: " + noRanks);
-		int rank = noRanks - bidRanking.indexOf(bid); // Highest index is ranked best
-		System.out.println("Rank of bid: " + rank);
-		boolean result = rank <= (noRanks * rankThreshold);
-		System.out.println("Within threshold? " + result);
+		boolean result = elicitationPlanner.isRankAboveThreshold(bid, rankThreshold);
+		userModel = elicitationPlanner.getUserModel();
+		log.debug(() -> "No. of ranks: " + rankingIndex.size());
+		log.debug(() -> "Within threshold? " + result);
 		return result;
 	}
 
-	private Bid getRandomBidAboveThreshold() {
-		BidRanking bidRanking = userModel.getBidRanking();
-		int noRanks = bidRanking.getSize();
-		System.out.println("No ranks: " + noRanks);
+	private int getRandomIndexAboveThreshold() {
+		int noRanks = rankingIndex.size();
+		log.debug(() -> "No ranks: " + noRanks);
 		int thresholdedRanks = (int)(noRanks * rankThreshold);
-		System.out.println("Ranks within threshold: " + noRanks);
-		Random rand = new Random();
-		int randRank = rand.nextInt(thresholdedRanks + 1);
-		System.out.println("Random rank = " + randRank);
-		return bidRanking.getBidOrder().get(noRanks - randRank - 1);
+		log.debug(() -> "Ranks within threshold: " + thresholdedRanks);
+		int randRank = rand.nextInt(Math.min(thresholdedRanks + 1, noRanks));
+		log.debug(() -> "Random rank = " + randRank);
+		return noRanks - randRank - 1;
 	}
 
 	/**
@@ -175,21 +149,12 @@ public class MyAgent extends AbstractNegotiationParty
 		{
 			lastOffer = ((Offer) action).getBid();
 
-			System.out.println("Received offer: " + lastOffer.toString());
-			noBids += 1;
+			log.debug(() -> "Received offer: " + lastOffer);
 			// Update frequency table
-			List<Issue> issues = lastOffer.getIssues();
-
-			for (Issue issue : issues) {
-				int issueNumber = issue.getNumber();
-				String value = ((ValueDiscrete) lastOffer.getValue(issueNumber)).getValue();
-				int currentCount = frequencyTable.get(issueNumber).get(value);
-				frequencyTable.get(issueNumber).put(value, currentCount + 1);
-			}
+			frequencyTable.addBid(lastOffer);
 
-			printFrequencyTable();
-			double predictedValue = predictValuation(lastOffer);
-			System.out.println("Predicted value: " + predictedValue);
+			log.debug(frequencyTable::toString);
+			log.debug(() -> "Predicted value: " + predictValuation(lastOffer));
 		}
 	}
 
@@ -200,81 +165,51 @@ public class MyAgent extends AbstractNegotiationParty
 	 */
 	private double predictValuation(Bid offer)
 	{
-		List<Issue> issues = offer.getIssues();
 		double value = 0;
-		double[] optionValues = getOptionValues(offer, issues);
-		double[] normalisedWeights = getNormalisedWeights(issues);
-		for (int i = 0; i < optionValues.length; i++)
-			value += optionValues[i] * normalisedWeights[i];
+		double[] normalisedWeights = frequencyTable.getNormalisedWeights();
+		for (int i = 0; i < normalisedWeights.length; i++)
+			value += frequencyTable.getOptionValue(i, frequencyTable.getOrdinal(i, offer)) * normalisedWeights[i];
 
 		return value;
 	}
 
 	/**
-	 * Calculate the value of an opponent's options
-	 * @param bid The bid provided by the opponent
-	 * @param issues A list of issues that the bid negotiates about
-	 * @return A list of option values, calculated using preference order
+	 * Reports the elicitations and turn latencies of this session and flushes its diagnostics.
 	 */
-	private double[] getOptionValues(Bid bid, List<Issue> issues) {
-		double[] optionValues = new double[issues.size()];
-		for (int i = 0; i < issues.size(); i++)
-		{
-			Issue issue = issues.get(i);
-			int issueNumber = issue.getNumber();
-			HashMap<String, Integer> options = frequencyTable.get(issueNumber);
-			double noOptions = options.keySet().size();
-
-			String chosenOption = ((ValueDiscrete) bid.getValue(issueNumber)).getValue();
-			int rank = 0;
-			int optionValue = options.get(chosenOption);
-			for (String option : options.keySet())
-			{
-				if (options.get(option) >= optionValue)
-					rank += 1;
-			}
-
-			optionValues[i] = (noOptions - rank + 1) / noOptions;
-		}
-
-		return optionValues;
+	@Override
+	public Map<String, String> negotiationEnded(Bid acceptedBid)
+	{
+		if (elicitationPlanner != null)
+			log.info(elicitationPlanner::toString);
+		log.info(turnLatency::toString);
+		log.close();
+		return super.negotiationEnded(acceptedBid);
 	}
 
 	/**
-	 * Get the normalised weights for each issue, using the Gini Index
-	 * @param issues A list of issues that the bid negotiates about
-	 * @return An array of weights
+	 * Logs the weight of every issue and the evaluation of every option of our utility space
 	 */
-	private double[] getNormalisedWeights(List<Issue> issues) {
-		double[] weights = new double[issues.size()];
-		double noBidsSquared = Math.pow(noBids, 2);
-
-		for (int i = 0; i < issues.size(); i++)
-		{
-			List<Integer> optionCounts = new ArrayList<>(frequencyTable.get(issues.get(i).getNumber()).values());
-			double weight = 0;
-			for (Integer option : optionCounts)
-				weight += (Math.pow(option, 2) / noBidsSquared);
-
-			weights[i] = weight;
-		}
-
-		double weightSum = Arrays.stream(weights).sum();
-		double[] normalisedWeights = new double[issues.size()];
-		for (int i = 0; i < weights.length; i++)
-			normalisedWeights[i] = weights[i] / weightSum;
+	private void logUtilitySpace(AdditiveUtilitySpace additiveUtilitySpace)
+	{
+		for (Issue issue : additiveUtilitySpace.getDomain().getIssues()) {
+			int issueNumber = issue.getNumber();
+			log.debug(() -> ">> " + issue.getName() + " weight: " + additiveUtilitySpace.getWeight(issueNumber));
 
-		return normalisedWeights;
-	}
+			// Assuming that issues are discrete only
+			IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
+			EvaluatorDiscrete evaluatorDiscrete = (EvaluatorDiscrete) additiveUtilitySpace.getEvaluator(issueNumber);
 
-	private void printFrequencyTable() {
-		System.out.println("Frequency table");
-		for (Integer issueNo : frequencyTable.keySet()) {
-			System.out.print("Issue" + issueNo + " ");
-			for (String option : frequencyTable.get(issueNo).keySet()) {
-				System.out.print(frequencyTable.get(issueNo).get(option) + " ");
+			for (ValueDiscrete valueDiscrete : issueDiscrete.getValues()) {
+				log.debug(valueDiscrete::getValue);
+				log.debug(() -> "Evaluation(getValue): " + evaluatorDiscrete.getValue(valueDiscrete));
+				try
+				{
+					Double evaluation = evaluatorDiscrete.getEvaluation(valueDiscrete);
+					log.debug(() -> "Evaluation(getEvaluation): " + evaluation);
+				} catch (Exception e) {
+					e.printStackTrace();
+				}
 			}
-			System.out.println();
 		}
 	}
 
@@ -285,72 +220,13 @@ public class MyAgent extends AbstractNegotiationParty
 	}
 
 	/**
-	 * A simple heuristic for estimating a discrete {@link AdditiveUtilitySpace} from a {@link BidRanking}.
-	 * Gives 0 points to all values occuring in the lowest ranked bid,
-	 * then 1 point to all values occuring in the second lowest bid, and so on.
+	 * Estimates a discrete {@link AdditiveUtilitySpace} from the {@link BidRanking}
+	 * by fitting option scores to the order of the ranked bids.
 	 */
 	@Override
 	public AbstractUtilitySpace estimateUtilitySpace()
 	{
-		AdditiveUtilitySpace utilitySpace = setupUtilitySpace();
-
-		BidRanking bidRanking = userModel.getBidRanking();
-		double points = 0;
-		for (Bid bid : bidRanking.getBidOrder())
-		{
-			List<Issue> issues = bid.getIssues();
-			for (Issue issue : issues)
-			{
-				EvaluatorDiscrete evaluator = (EvaluatorDiscrete) utilitySpace.getEvaluator(issue);
-				int issueNo = issue.getNumber();
-				ValueDiscrete value = (ValueDiscrete) bid.getValue(issueNo);
-				double oldUtil = evaluator.getDoubleValue(value);
-				evaluator.setEvaluationDouble(value, oldUtil + points);
-			}
-			points += 1;
-		}
-		normaliseWeightsByMaxValues(utilitySpace);
-		return utilitySpace;
-	}
-
-	private AdditiveUtilitySpace setupUtilitySpace()
-	{
-		Domain domain = userModel.getDomain();
-		List<Issue> issues = domain.getIssues();
-		int noIssues = issues.size();
-		Map<Objective, Evaluator> evaluatorMap = new HashMap<>();
-		for (Issue issue : issues)
-		{
-			IssueDiscrete issueDiscrete = (IssueDiscrete) issue;
-			EvaluatorDiscrete evaluator = new EvaluatorDiscrete();
-			evaluator.setWeight(1.0 / noIssues);
-			for (ValueDiscrete value : issueDiscrete.getValues())
-				evaluator.setEvaluationDouble(value, 0.0);
-
-			evaluatorMap.put(issue, evaluator);
-		}
-
-		return new AdditiveUtilitySpace(domain, evaluatorMap);
-	}
-
-	private void normaliseWeightsByMaxValues(AdditiveUtilitySpace utilitySpace)
-	{
-		for (Issue issue : utilitySpace.getDomain().getIssues())
-		{
-			EvaluatorDiscrete evaluator = (EvaluatorDiscrete) utilitySpace.getEvaluator(issue);
-			evaluator.normalizeAll();
-		}
-		scaleAllValueFrom0To1(utilitySpace);
-		utilitySpace.normalizeWeights();
-	}
-
-	private void scaleAllValueFrom0To1(AdditiveUtilitySpace utilitySpace)
-	{
-		for (Issue issue : utilitySpace.getDomain().getIssues())
-		{
-			EvaluatorDiscrete evalutor = (EvaluatorDiscrete) utilitySpace.getEvaluator(issue);
-			evalutor.scaleAllValuesFrom0To1();;
-		}
+		return new UtilitySpaceEstimator(userModel.getBidRanking()).getUtilitySpace();
 	}
 
 }
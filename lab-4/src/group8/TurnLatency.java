@@ -0,0 +1,159 @@
+package group8;
+
+import genius.core.timeline.TimeLineInfo;
+import genius.core.timeline.Timeline;
+
+/**
+ * Times the turns of an agent against a latency objective, and derives the budget of a bid search
+ * from it. A search may use half of the objective, but never more than a hundredth of the time left in
+ * a negotiation with a time deadline. A search during a turn gets that less what the turn has taken.
+ * Latencies are counted in a histogram with eight linear buckets per power of two nanoseconds,
+ * so percentiles are reported to within an eighth.
+ * The objective is read from the system property {@value #SLO_PROPERTY} in milliseconds, defaulting to 50.
+ */
+public class TurnLatency
+{
+	public static final String SLO_PROPERTY = "group8.turn.slo.ms";
+	private static final long DEFAULT_SLO_MILLIS = 50;
+	private static final double SEARCH_SHARE_OF_SLO = 0.5;
+	private static final double SEARCH_SHARE_OF_REMAINING = 0.01;
+
+	private static final int SUB_BUCKET_BITS = 3;
+	private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+	private final long sloNanos;
+	private final long[] counts = new long[64 * SUB_BUCKETS];
+	private long turns = 0;
+	private long totalNanos = 0;
+	private long maxNanos = 0;
+	private long turnsOverSlo = 0;
+	private long turnStart;
+
+	public TurnLatency()
+	{
+		this(Long.getLong(SLO_PROPERTY, DEFAULT_SLO_MILLIS) * 1000000);
+	}
+
+	/**
+	 * @param sloNanos The latency objective of a turn
+	 */
+	public TurnLatency(long sloNanos)
+	{
+		this.sloNanos = sloNanos;
+	}
+
+	public void startTurn()
+	{
+		turnStart = System.nanoTime();
+	}
+
+	/**
+	 * @param timeline The timeline of the negotiation
+	 * @return The wall-clock time the bid search of the current turn may take, in nanoseconds
+	 */
+	public long getSearchBudget(TimeLineInfo timeline)
+	{
+		return Math.max(0, getIdleSearchBudget(timeline) - (System.nanoTime() - turnStart));
+	}
+
+	/**
+	 * @param timeline The timeline of the negotiation
+	 * @return The wall-clock time a bid search outside of a turn may take, in nanoseconds
+	 */
+	public long getIdleSearchBudget(TimeLineInfo timeline)
+	{
+		long budget = (long) (sloNanos * SEARCH_SHARE_OF_SLO);
+		if (timeline.getType() == Timeline.Type.Time)
+		{
+			double remainingSeconds = timeline.getTotalTime() - timeline.getCurrentTime();
+			budget = Math.min(budget, (long) (remainingSeconds * SEARCH_SHARE_OF_REMAINING * 1e9));
+		}
+		return Math.max(0, budget);
+	}
+
+	/**
+	 * Records the latency of the current turn.
+	 * @return The latency in nanoseconds
+	 */
+	public long endTurn()
+	{
+		long latency = System.nanoTime() - turnStart;
+		counts[bucketOf(latency)]++;
+		turns++;
+		totalNanos += latency;
+		maxNanos = Math.max(maxNanos, latency);
+		if (latency > sloNanos)
+			turnsOverSlo++;
+		return latency;
+	}
+
+	public boolean isOverSlo(long latency)
+	{
+		return latency > sloNanos;
+	}
+
+	public long getSloNanos()
+	{
+		return sloNanos;
+	}
+
+	public long getTurns()
+	{
+		return turns;
+	}
+
+	public long getTurnsOverSlo()
+	{
+		return turnsOverSlo;
+	}
+
+	/**
+	 * @param percentile The percentile, in (0, 100]
+	 * @return An upper bound on the latency of that percentile of turns, in nanoseconds, or 0 without turns
+	 */
+	public long getPercentile(double percentile)
+	{
+		long rank = (long) Math.ceil(turns * percentile / 100);
+		long seen = 0;
+		for (int bucket = 0; bucket < counts.length; bucket++)
+		{
+			seen += counts[bucket];
+			if (seen >= rank && seen > 0)
+				return Math.min(upperBoundOf(bucket), maxNanos);
+		}
+		return maxNanos;
+	}
+
+	private static int bucketOf(long nanos)
+	{
+		if (nanos < SUB_BUCKETS)
+			return (int) Math.max(0, nanos);
+		int exponent = 63 - Long.numberOfLeadingZeros(nanos);
+		int subBucket = (int) (nanos >>> (exponent - SUB_BUCKET_BITS)) & (SUB_BUCKETS - 1);
+		return (exponent - SUB_BUCKET_BITS + 1) * SUB_BUCKETS + subBucket;
+	}
+
+	private static long upperBoundOf(int bucket)
+	{
+		if (bucket < SUB_BUCKETS)
+			return bucket;
+		int exponent = bucket / SUB_BUCKETS + SUB_BUCKET_BITS - 1;
+		int subBucket = bucket % SUB_BUCKETS;
+		return ((long) (SUB_BUCKETS + subBucket + 1) << (exponent - SUB_BUCKET_BITS)) - 1;
+	}
+
+	private static String toMillis(long nanos)
+	{
+		return String.format("%.3f ms", nanos / 1e6);
+	}
+
+	@Override
+	public String toString()
+	{
+		if (turns == 0)
+			return "No turns";
+		return "Turns: " + turns + ", mean " + toMillis(totalNanos / turns) + ", p50 " + toMillis(getPercentile(50))
+				+ ", p90 " + toMillis(getPercentile(90)) + ", p99 " + toMillis(getPercentile(99)) + ", max "
+				+ toMillis(maxNanos) + ", over the objective of " + toMillis(sloNanos) + ": " + turnsOverSlo;
+	}
+}
@@ -0,0 +1,226 @@
+package group8;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import genius.core.Bid;
+import genius.core.Domain;
+import genius.core.issue.Issue;
+import genius.core.issue.IssueDiscrete;
+import genius.core.issue.Objective;
+import genius.core.issue.ValueDiscrete;
+import genius.core.uncertainty.BidRanking;
+import genius.core.utility.AdditiveUtilitySpace;
+import genius.core.utility.Evaluator;
+import genius.core.utility.EvaluatorDiscrete;
+
+/**
+ * Estimates an additive utility space over discrete issues from a {@link BidRanking}.
+ * Every option of every issue is a feature with a non-negative score, and the utility of a bid is
+ * the sum of the scores of its options. Each pair of neighbouring bids in the ranking gives the
+ * constraint that the better bid scores at least a margin more than the worse one. Violations are
+ * penalised quadratically and minimised by coordinate descent, sweeping the features until the
+ * solution settles or the time budget runs out.
+ * Features are indexed by a flat offset: the options of the issue in slot s start at offset[s].
+ */
+public class UtilitySpaceEstimator
+{
+	/** Time the solver may take, startup of the agent waits on it */
+	public static final long TIME_BUDGET_MILLIS = 100;
+	private static final int MAX_SWEEPS = 500;
+	private static final double TOLERANCE = 1e-9;
+	/** Keeps features that no constraint involves at zero */
+	private static final double REGULARISATION = 1e-6;
+
+	private final Domain domain;
+	private final IssueDiscrete[] issues;
+	private final int[] offset;
+	private final int noFeatures;
+	private final double margin;
+
+	// Constraints by feature: the constraints of feature f are entries columnStart[f] to columnStart[f + 1]
+	private final int[] columnStart;
+	private final int[] constraint;
+	private final byte[] sign;
+
+	private final double[] scores;
+	/** The score of the better bid minus that of the worse bid, per constraint */
+	private final double[] differences;
+	private int noSweeps = 0;
+
+	/**
+	 * Solves the estimate of a ranking.
+	 * @param bidRanking The ranking, from worst to best
+	 */
+	public UtilitySpaceEstimator(BidRanking bidRanking)
+	{
+		List<Bid> bidOrder = bidRanking.getBidOrder();
+		domain = bidRanking.getMaximalBid().getDomain();
+		List<Issue> domainIssues = domain.getIssues();
+		int noIssues = domainIssues.size();
+		issues = new IssueDiscrete[noIssues];
+		offset = new int[noIssues];
+		int features = 0;
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			issues[slot] = (IssueDiscrete) domainIssues.get(slot);
+			offset[slot] = features;
+			features += issues[slot].getNumberOfValues();
+		}
+		noFeatures = features;
+
+		int noBids = bidOrder.size();
+		int[][] bidFeatures = new int[noBids][noIssues];
+		for (int i = 0; i < noBids; i++)
+		{
+			Bid bid = bidOrder.get(i);
+			for (int slot = 0; slot < noIssues; slot++)
+				bidFeatures[i][slot] = offset[slot] + issues[slot].getValueIndex((ValueDiscrete) bid.getValue(issues[slot].getNumber()));
+		}
+
+		// Spread the utilities of the ranked bids over about [0, 1]
+		int noConstraints = Math.max(0, noBids - 1);
+		margin = 1.0 / Math.max(1, noConstraints);
+
+		// Count the entries of every feature, then fill them in; options both bids share cancel out
+		columnStart = new int[noFeatures + 1];
+		for (int c = 0; c < noConstraints; c++)
+		{
+			for (int slot = 0; slot < noIssues; slot++)
+			{
+				if (bidFeatures[c][slot] == bidFeatures[c + 1][slot])
+					continue;
+				columnStart[bidFeatures[c][slot] + 1]++;
+				columnStart[bidFeatures[c + 1][slot] + 1]++;
+			}
+		}
+		for (int f = 0; f < noFeatures; f++)
+			columnStart[f + 1] += columnStart[f];
+
+		constraint = new int[columnStart[noFeatures]];
+		sign = new byte[columnStart[noFeatures]];
+		int[] next = columnStart.clone();
+		for (int c = 0; c < noConstraints; c++)
+		{
+			for (int slot = 0; slot < noIssues; slot++)
+			{
+				int worse = bidFeatures[c][slot];
+				int better = bidFeatures[c + 1][slot];
+				if (worse == better)
+					continue;
+				constraint[next[better]] = c;
+				sign[next[better]++] = 1;
+				constraint[next[worse]] = c;
+				sign[next[worse]++] = -1;
+			}
+		}
+
+		scores = new double[noFeatures];
+		differences = new double[noConstraints];
+		solve();
+	}
+
+	/**
+	 * Sweep the features, each time taking the step that minimises a quadratic upper bound on the
+	 * loss along that feature, projected onto non-negative scores.
+	 */
+	private void solve()
+	{
+		long deadline = System.nanoTime() + TIME_BUDGET_MILLIS * 1000000;
+		while (noSweeps < MAX_SWEEPS && System.nanoTime() < deadline)
+		{
+			noSweeps++;
+			double largestStep = 0;
+			for (int f = 0; f < noFeatures; f++)
+			{
+				double gradient = REGULARISATION * scores[f];
+				for (int k = columnStart[f]; k < columnStart[f + 1]; k++)
+				{
+					double violation = margin - differences[constraint[k]];
+					if (violation > 0)
+						gradient -= 2 * violation * sign[k];
+				}
+				double curvature = REGULARISATION + 2 * (columnStart[f + 1] - columnStart[f]);
+
+				double score = Math.max(0, scores[f] - gradient / curvature);
+				double step = score - scores[f];
+				if (step == 0)
+					continue;
+				scores[f] = score;
+				for (int k = columnStart[f]; k < columnStart[f + 1]; k++)
+					differences[constraint[k]] += step * sign[k];
+				largestStep = Math.max(largestStep, Math.abs(step));
+			}
+
+			if (largestStep < TOLERANCE)
+				break;
+		}
+	}
+
+	/**
+	 * The estimate as an additive utility space. The weight of an issue is the range of the
+	 * scores of its options, and the evaluation of an option is its score scaled to [0, 1].
+	 * @return A new utility space
+	 */
+	public AdditiveUtilitySpace getUtilitySpace()
+	{
+		int noIssues = issues.length;
+		double[] minimum = new double[noIssues];
+		double[] range = new double[noIssues];
+		double totalRange = 0;
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			int end = slot + 1 < noIssues ? offset[slot + 1] : noFeatures;
+			double min = Double.POSITIVE_INFINITY;
+			double max = Double.NEGATIVE_INFINITY;
+			for (int f = offset[slot]; f < end; f++)
+			{
+				min = Math.min(min, scores[f]);
+				max = Math.max(max, scores[f]);
+			}
+			minimum[slot] = min;
+			range[slot] = max - min;
+			totalRange += range[slot];
+		}
+
+		Map<Objective, Evaluator> evaluatorMap = new HashMap<>();
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			EvaluatorDiscrete evaluator = new EvaluatorDiscrete();
+			evaluator.setWeight(totalRange > 0 ? range[slot] / totalRange : 1.0 / noIssues);
+			List<ValueDiscrete> values = issues[slot].getValues();
+			for (int ordinal = 0; ordinal < values.size(); ordinal++)
+			{
+				// An issue the ranking says nothing about gets a weight of 0
+				double evaluation = range[slot] > 0 ? (scores[offset[slot] + ordinal] - minimum[slot]) / range[slot] : 1;
+				evaluator.setEvaluationDouble(values.get(ordinal), evaluation);
+			}
+			evaluatorMap.put(issues[slot], evaluator);
+		}
+
+		return new AdditiveUtilitySpace(domain, evaluatorMap);
+	}
+
+	/**
+	 * @return The fraction of neighbouring ranked bids that the estimate orders correctly
+	 */
+	public double getAccuracy()
+	{
+		if (differences.length == 0)
+			return 1;
+
+		int correct = 0;
+		for (double difference : differences)
+		{
+			if (difference > 0)
+				correct++;
+		}
+		return correct / (double) differences.length;
+	}
+
+	public int getNoSweeps()
+	{
+		return noSweeps;
+	}
+}
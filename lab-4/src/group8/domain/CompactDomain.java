@@ -0,0 +1,277 @@
+package group8.domain;
+
+import java.io.BufferedInputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+import javax.xml.stream.XMLInputFactory;
+import javax.xml.stream.XMLStreamConstants;
+import javax.xml.stream.XMLStreamException;
+import javax.xml.stream.XMLStreamReader;
+
+/**
+ * A discrete domain read from a Genius negotiation_template or utility_space file in one streaming
+ * pass, without building a document or the Genius objective tree. If the file is a profile, the
+ * additive utility comes along: a weight per issue, and the evaluations of all values in one array,
+ * normalised by the largest evaluation of their issue as EvaluatorDiscrete does.
+ * Issues are kept in file order by slot, and the value with ordinal o of the issue in slot s is
+ * stored at offset[s] + o.
+ */
+public class CompactDomain
+{
+	private static final XMLInputFactory FACTORY = XMLInputFactory.newInstance();
+
+	private String name;
+	private String[] issueNames;
+	private int[] issueNumbers;
+	private String[] valueNames;
+	private int[] offset;
+	private List<HashMap<String, Integer>> ordinals;
+
+	private boolean profile = false;
+	private boolean uncertain = false;
+	private double[] weights;
+	private double[] evaluations;
+	private double discountFactor = 1;
+	private double reservationValue = 0;
+	private double elicitationCost = 0;
+
+	private CompactDomain()
+	{
+	}
+
+	public static CompactDomain load(File file) throws IOException, XMLStreamException
+	{
+		try (InputStream input = new BufferedInputStream(new FileInputStream(file)))
+		{
+			return load(input);
+		}
+	}
+
+	public static CompactDomain load(InputStream input) throws XMLStreamException
+	{
+		CompactDomain domain = new CompactDomain();
+		List<String> issueNames = new ArrayList<>();
+		List<Integer> issueNumbers = new ArrayList<>();
+		List<String> valueNames = new ArrayList<>();
+		List<Integer> offsets = new ArrayList<>();
+		double[] evaluations = new double[64];
+		HashMap<Integer, Double> weightByNumber = new HashMap<>();
+
+		XMLStreamReader reader = FACTORY.createXMLStreamReader(input);
+		try
+		{
+			while (reader.hasNext())
+			{
+				int event = reader.next();
+				if (event == XMLStreamConstants.END_ELEMENT && reader.getLocalName().equals("issue"))
+				{
+					// Normalise the evaluations of the issue by the largest
+					int start = offsets.get(offsets.size() - 1);
+					double max = 0;
+					for (int i = start; i < valueNames.size(); i++)
+						max = Math.max(max, evaluations[i]);
+					for (int i = start; i < valueNames.size(); i++)
+						evaluations[i] = max > 0 ? evaluations[i] / max : 0;
+					continue;
+				}
+				if (event != XMLStreamConstants.START_ELEMENT)
+					continue;
+
+				switch (reader.getLocalName())
+				{
+					case "utility_space":
+						domain.uncertain = "UNCERTAIN".equals(reader.getAttributeValue(null, "type"));
+						break;
+					case "objective":
+						if (domain.name == null)
+							domain.name = reader.getAttributeValue(null, "name");
+						break;
+					case "issue":
+						issueNames.add(reader.getAttributeValue(null, "name"));
+						issueNumbers.add(Integer.parseInt(reader.getAttributeValue(null, "index")));
+						offsets.add(valueNames.size());
+						break;
+					case "item":
+						if (valueNames.size() == evaluations.length)
+							evaluations = Arrays.copyOf(evaluations, evaluations.length * 2);
+						String evaluation = reader.getAttributeValue(null, "evaluation");
+						if (evaluation != null)
+						{
+							domain.profile = true;
+							evaluations[valueNames.size()] = Double.parseDouble(evaluation);
+						}
+						valueNames.add(reader.getAttributeValue(null, "value"));
+						break;
+					case "weight":
+						domain.profile = true;
+						weightByNumber.put(Integer.parseInt(reader.getAttributeValue(null, "index")),
+								Double.parseDouble(reader.getAttributeValue(null, "value")));
+						break;
+					case "discount_factor":
+						domain.discountFactor = Double.parseDouble(reader.getAttributeValue(null, "value"));
+						break;
+					case "reservation":
+						domain.reservationValue = Double.parseDouble(reader.getAttributeValue(null, "value"));
+						break;
+					case "elicitation_cost":
+						domain.elicitationCost = Double.parseDouble(reader.getElementText().trim());
+						break;
+					default:
+						break;
+				}
+			}
+		}
+		finally
+		{
+			reader.close();
+		}
+
+		int noIssues = issueNames.size();
+		domain.issueNames = issueNames.toArray(new String[noIssues]);
+		domain.valueNames = valueNames.toArray(new String[valueNames.size()]);
+		domain.issueNumbers = new int[noIssues];
+		domain.offset = new int[noIssues + 1];
+		domain.weights = new double[noIssues];
+		domain.ordinals = new ArrayList<>(noIssues);
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			domain.issueNumbers[slot] = issueNumbers.get(slot);
+			domain.offset[slot] = offsets.get(slot);
+			Double weight = weightByNumber.get(domain.issueNumbers[slot]);
+			domain.weights[slot] = weight == null ? 0 : weight;
+		}
+		domain.offset[noIssues] = valueNames.size();
+		domain.evaluations = Arrays.copyOf(evaluations, valueNames.size());
+		for (int slot = 0; slot < noIssues; slot++)
+		{
+			HashMap<String, Integer> issueOrdinals = new HashMap<>();
+			for (int i = domain.offset[slot]; i < domain.offset[slot + 1]; i++)
+				issueOrdinals.put(domain.valueNames[i], i - domain.offset[slot]);
+			domain.ordinals.add(issueOrdinals);
+		}
+		return domain;
+	}
+
+	public String getName()
+	{
+		return name;
+	}
+
+	public int getNumberOfIssues()
+	{
+		return issueNames.length;
+	}
+
+	public String getIssueName(int slot)
+	{
+		return issueNames[slot];
+	}
+
+	/**
+	 * @return The index of the issue in the file, as Genius numbers it
+	 */
+	public int getIssueNumber(int slot)
+	{
+		return issueNumbers[slot];
+	}
+
+	public int getNumberOfValues(int slot)
+	{
+		return offset[slot + 1] - offset[slot];
+	}
+
+	public String getValueName(int slot, int ordinal)
+	{
+		return valueNames[offset[slot] + ordinal];
+	}
+
+	/**
+	 * @return The number of outcomes, or Long.MAX_VALUE if there are more
+	 */
+	public long getNumberOfPossibleBids()
+	{
+		long outcomes = 1;
+		for (int slot = 0; slot < issueNames.length; slot++)
+		{
+			int values = Math.max(1, getNumberOfValues(slot));
+			outcomes = outcomes > Long.MAX_VALUE / values ? Long.MAX_VALUE : outcomes * values;
+		}
+		return outcomes;
+	}
+
+	/**
+	 * @return The ordinal of the value in its issue, or -1 if the issue has no such value
+	 */
+	public int getOrdinal(int slot, String value)
+	{
+		Integer ordinal = ordinals.get(slot).get(value);
+		return ordinal == null ? -1 : ordinal;
+	}
+
+	/**
+	 * @return Whether the file had evaluations or weights, rather than only the domain
+	 */
+	public boolean hasProfile()
+	{
+		return profile;
+	}
+
+	public boolean isUncertain()
+	{
+		return uncertain;
+	}
+
+	public double getWeight(int slot)
+	{
+		return weights[slot];
+	}
+
+	/**
+	 * @return The evaluation of a value, normalised to at most 1 within its issue
+	 */
+	public double getEvaluation(int slot, int ordinal)
+	{
+		return evaluations[offset[slot] + ordinal];
+	}
+
+	/**
+	 * @param bidOrdinals The ordinal of the value of every issue, by slot
+	 * @return The undiscounted utility of the bid
+	 */
+	public double getUtility(int[] bidOrdinals)
+	{
+		double utility = 0;
+		for (int slot = 0; slot < weights.length; slot++)
+			utility += weights[slot] * evaluations[offset[slot] + bidOrdinals[slot]];
+		return utility;
+	}
+
+	public double getDiscountFactor()
+	{
+		return discountFactor;
+	}
+
+	public double getReservationValue()
+	{
+		return reservationValue;
+	}
+
+	public double getElicitationCost()
+	{
+		return elicitationCost;
+	}
+
+	@Override
+	public String toString()
+	{
+		return name + " with " + getNumberOfIssues() + " issues and " + getNumberOfPossibleBids() + " outcomes"
+				+ (profile ? ", reservation value " + reservationValue + ", discount factor " + discountFactor : "");
+	}
+}
@@ -0,0 +1,223 @@
+package group8.domain;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.nio.charset.StandardCharsets;
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Generates a discrete domain and two additive profiles on it, as Genius XML in the shape of the
+ * templates: a negotiation_template for the domain, like lab1_laptop.xml, and a utility_space per
+ * profile, like lab1_laptop_util1.xml, or like party1_utility.xml when the profiles are uncertain.
+ * Weights follow a power law over the issues: the issue ranked r gets a weight proportional to
+ * r^-skew, so a skew of 0 gives equal weights. The two profiles are related through a Gaussian
+ * copula: every evaluation and weight rank is drawn from a normal score, and the score of the second
+ * profile is correlation * first + sqrt(1 - correlation^2) * noise. A correlation of 1 gives equal
+ * profiles, and -1 opposed ones.
+ * Usage: java group8.domain.DomainGenerator directory name issues values [skew] [correlation] [seed] [uncertain]
+ */
+public class DomainGenerator
+{
+	/** Evaluations are written as whole numbers from 0 to this */
+	private static final int MAX_EVALUATION = 100;
+	private static final int COMPARISONS = 150;
+	private static final double ELICITATION_COST = 0.001;
+
+	private final int noIssues;
+	private final int valuesPerIssue;
+	private final double skew;
+	private final double correlation;
+	private final Random random;
+
+	/** Evaluations and weights of the two profiles, by issue and value */
+	private final int[][][] evaluations;
+	private final double[][] weights;
+
+	/**
+	 * @param noIssues The number of issues
+	 * @param valuesPerIssue The number of values of every issue
+	 * @param skew The exponent of the power law of the weights, at least 0
+	 * @param correlation The correlation of the two profiles, in [-1, 1]
+	 * @param seed The seed of the profiles
+	 */
+	public DomainGenerator(int noIssues, int valuesPerIssue, double skew, double correlation, long seed)
+	{
+		if (noIssues < 1 || valuesPerIssue < 1)
+			throw new IllegalArgumentException("A domain needs at least one issue and one value per issue");
+		if (skew < 0 || correlation < -1 || correlation > 1)
+			throw new IllegalArgumentException("The skew must be at least 0 and the correlation in [-1, 1]");
+		this.noIssues = noIssues;
+		this.valuesPerIssue = valuesPerIssue;
+		this.skew = skew;
+		this.correlation = correlation;
+		this.random = new Random(seed);
+
+		evaluations = new int[2][noIssues][valuesPerIssue];
+		for (int issue = 0; issue < noIssues; issue++)
+		{
+			for (int value = 0; value < valuesPerIssue; value++)
+			{
+				double[] scores = drawScores();
+				for (int profile = 0; profile < 2; profile++)
+					evaluations[profile][issue][value] = (int) Math.round(MAX_EVALUATION * normalCdf(scores[profile]));
+			}
+		}
+
+		// Rank the issues of each profile by a score, and weigh them by rank
+		double[][] issueScores = new double[2][noIssues];
+		for (int issue = 0; issue < noIssues; issue++)
+		{
+			double[] scores = drawScores();
+			issueScores[0][issue] = scores[0];
+			issueScores[1][issue] = scores[1];
+		}
+		weights = new double[2][];
+		for (int profile = 0; profile < 2; profile++)
+			weights[profile] = toWeights(issueScores[profile]);
+	}
+
+	public static void main(String[] args) throws IOException
+	{
+		if (args.length < 4)
+		{
+			System.err.println("Usage: DomainGenerator directory name issues values [skew] [correlation] [seed] [uncertain]");
+			System.exit(2);
+		}
+		File directory = new File(args[0]);
+		String name = args[1];
+		double skew = args.length > 4 ? Double.parseDouble(args[4]) : 0;
+		double correlation = args.length > 5 ? Double.parseDouble(args[5]) : 0;
+		long seed = args.length > 6 ? Long.parseLong(args[6]) : System.currentTimeMillis();
+		boolean uncertain = args.length > 7 && Boolean.parseBoolean(args[7]);
+
+		DomainGenerator generator = new DomainGenerator(Integer.parseInt(args[2]), Integer.parseInt(args[3]), skew,
+				correlation, seed);
+		generator.write(directory, name, uncertain);
+		System.out.println("Wrote " + name + " with " + generator.getNumberOfPossibleBids() + " outcomes to " + directory);
+	}
+
+	/**
+	 * Writes name.xml with the domain, and name_util1.xml and name_util2.xml with the profiles.
+	 * @param uncertain Whether the profiles are of type UNCERTAIN, with the settings of party1_utility.xml
+	 */
+	public void write(File directory, String name, boolean uncertain) throws IOException
+	{
+		directory.mkdirs();
+		try (PrintWriter writer = new PrintWriter(new File(directory, name + ".xml"), StandardCharsets.UTF_8.name()))
+		{
+			writer.print("<negotiation_template> \n");
+			writer.print("<utility_space number_of_issues=\"" + noIssues + "\"> \n");
+			writeObjective(writer, name, -1);
+			writer.print("</utility_space> \n");
+			writer.print("</negotiation_template> \n");
+		}
+		for (int profile = 0; profile < 2; profile++)
+		{
+			try (PrintWriter writer = new PrintWriter(new File(directory, name + "_util" + (profile + 1) + ".xml"),
+					StandardCharsets.UTF_8.name()))
+			{
+				writer.print(uncertain ? "<utility_space type=\"UNCERTAIN\"> \n" : "<utility_space> \n");
+				writeObjective(writer, name, profile);
+				writer.print("<discount_factor value=\"1.0\"> \n</discount_factor> \n");
+				writer.print("<reservation value=\"0.0\"> \n</reservation> \n");
+				if (uncertain)
+				{
+					writer.print("<comparisons> \n" + COMPARISONS + " \n</comparisons> \n");
+					writer.print("<errors> \n0 \n</errors> \n");
+					writer.print("<elicitation_cost> \n" + ELICITATION_COST + " \n</elicitation_cost> \n");
+					writer.print("<fixed_seed> \ntrue \n</fixed_seed> \n");
+					writer.print("<experimental> \nfalse \n</experimental> \n");
+				}
+				writer.print("</utility_space> \n");
+			}
+		}
+	}
+
+	public long getNumberOfPossibleBids()
+	{
+		long outcomes = 1;
+		for (int issue = 0; issue < noIssues; issue++)
+			outcomes = outcomes > Long.MAX_VALUE / valuesPerIssue ? Long.MAX_VALUE : outcomes * valuesPerIssue;
+		return outcomes;
+	}
+
+	/**
+	 * @return The weights of a profile, 0 or 1
+	 */
+	public double[] getWeights(int profile)
+	{
+		return weights[profile].clone();
+	}
+
+	/**
+	 * Writes the objective with its issues, and the evaluations and weights of a profile if there is one.
+	 */
+	private void writeObjective(PrintWriter writer, String name, int profile)
+	{
+		writer.print("<objective name=\"" + name + "\" index=\"0\" description=\"\" etype=\"objective\" type=\"objective\"> \n");
+		for (int issue = 0; issue < noIssues; issue++)
+		{
+			writer.print("<issue vtype=\"discrete\" name=\"Issue" + (issue + 1) + "\" index=\"" + (issue + 1)
+					+ "\" etype=\"discrete\" type=\"discrete\"> \n");
+			for (int value = 0; value < valuesPerIssue; value++)
+			{
+				String evaluation = profile < 0 ? "" : "evaluation=\"" + evaluations[profile][issue][value] + ".0\" ";
+				writer.print("<item " + evaluation + "index=\"" + (value + 1) + "\" value=\"Value" + (value + 1) + "\"> \n</item> \n");
+			}
+			writer.print("</issue> \n");
+		}
+		if (profile >= 0)
+		{
+			for (int issue = 0; issue < noIssues; issue++)
+				writer.print("<weight index=\"" + (issue + 1) + "\" value=\"" + weights[profile][issue] + "\"> \n</weight> \n");
+		}
+		writer.print("</objective> \n");
+	}
+
+	/**
+	 * @return Normal scores of the two profiles with the configured correlation
+	 */
+	private double[] drawScores()
+	{
+		double first = random.nextGaussian();
+		double second = correlation * first + Math.sqrt(1 - correlation * correlation) * random.nextGaussian();
+		return new double[] { first, second };
+	}
+
+	/**
+	 * @return Weights by the power law over the ranks of the scores, highest score first, summing to 1
+	 */
+	private double[] toWeights(double[] scores)
+	{
+		Integer[] order = new Integer[scores.length];
+		for (int issue = 0; issue < scores.length; issue++)
+			order[issue] = issue;
+		Arrays.sort(order, (a, b) -> Double.compare(scores[b], scores[a]));
+
+		double[] weights = new double[scores.length];
+		double total = 0;
+		for (int rank = 0; rank < order.length; rank++)
+		{
+			weights[order[rank]] = Math.pow(rank + 1, -skew);
+			total += weights[order[rank]];
+		}
+		for (int issue = 0; issue < weights.length; issue++)
+			weights[issue] /= total;
+		return weights;
+	}
+
+	/**
+	 * The standard normal distribution function, by the approximation of Abramowitz and Stegun 7.1.26
+	 * of the error function, accurate to about 1e-7.
+	 */
+	static double normalCdf(double x)
+	{
+		double z = Math.abs(x) / Math.sqrt(2);
+		double t = 1 / (1 + 0.3275911 * z);
+		double erf = 1 - t * (0.254829592 + t * (-0.284496736 + t * (1.421413741 + t * (-1.453152027 + t * 1.061405429))))
+				* Math.exp(-z * z);
+		return x >= 0 ? 0.5 * (1 + erf) : 0.5 * (1 - erf);
+	}
+}